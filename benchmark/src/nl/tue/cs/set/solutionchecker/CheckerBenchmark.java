@@ -0,0 +1,228 @@
+package nl.tue.cs.set.solutionchecker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the parts of the checker on a generated tree of {@link SyntheticSubmissions}: compiling the
+ * submissions, running their tests, checking the whole batch end to end and writing the csv file. Every operation
+ * handles the whole batch, so it is measured as a single shot per iteration. The tree is generated with a fixed seed,
+ * so runs with the same parameters on the same machine are comparable.
+ *
+ * Needs nothing but a JDK and the JUnit 3.8.x lib, built with the benchmark module:
+ *
+ * <pre>
+ * mvn -B package
+ * java -Djunit38xlib=junit.jar -jar benchmark/target/benchmarks.jar -p students=100 -p threads=4
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CheckerBenchmark {
+  /** System property with the path to the JUnit 3.8.x lib, the forked benchmark JVMs inherit it */
+  public static final String JUNIT_LIB_PROPERTY = "junit38xlib";
+
+  /** Number of generated submissions */
+  @Param("20")
+  public int students;
+
+  /** Number of classes per submission */
+  @Param("3")
+  public int classes;
+
+  /** Seed picking the kind of every submission */
+  @Param("42")
+  public long seed;
+
+  /** Threads and test workers used by the checker */
+  @Param("1")
+  public int threads;
+
+  /** Test run mode: fork, batch or pool */
+  @Param("fork")
+  public String testRun;
+
+  private Path junitLibPath;
+  private Path workDir;
+  private SyntheticSubmissions submissions;
+  private CheckerSettings settings;
+  private Compiler compiler;
+  private TestRunner testRunner;
+  private final List<Workspace> compiled = new ArrayList<>();
+  private List<SubmissionCheckResult> results;
+  private PrintStream originalOut;
+
+  @Setup
+  public void setUp() throws IOException {
+    String junitLib = System.getProperty(JUNIT_LIB_PROPERTY);
+    if (junitLib == null || !Files.isRegularFile(Paths.get(junitLib))) {
+      throw new IllegalArgumentException("JUnit 3.8.x lib (-D" + JUNIT_LIB_PROPERTY + "=<path>) is not supplied or not an existing file");
+    }
+    TestRunner.TestRunMode testRunMode = Checker.toTestRunMode(testRun);
+    if (testRunMode == null) {
+      throw new IllegalArgumentException("Test run mode (testRun) must be one of 'fork', 'batch' or 'pool'");
+    }
+
+    junitLibPath = Paths.get(junitLib).toAbsolutePath();
+    workDir = Files.createTempDirectory("checker-benchmark");
+    // The csv files are saved next to the tree, so deleting the tree removes everything
+    submissions = new SyntheticSubmissions(workDir, students, classes, seed);
+    submissions.generate();
+
+    settings = CheckerSettings.defaults()
+            .withThreads(threads)
+            .withTestThreads(threads)
+            .withTestRunSettings(TestRunSettings.defaults().withMode(testRunMode).withWorkers(threads));
+    compiler = new Compiler(junitLibPath);
+    testRunner = new TestRunner(junitLibPath, settings.getTestRunSettings());
+    results = syntheticResults();
+
+    // The tests are run on submissions compiled once up front
+    for (Path dir : submissions.getSubmissionDirs()) {
+      Compiler.CompileResult compileResult = compiler.compileInMemory(dir, CompiledClasses.empty(), resolve(dir, submissions.getClassFileNames()));
+      if (compileResult.isSuccessful()) {
+        Compiler.CompileResult testCompileResult = compiler.compileInMemory(dir, compileResult.getCompiledClasses(),
+                Collections.singletonList(submissions.getTestFile()));
+
+        Workspace workspace = Workspace.create(settings.getWorkspaceRoot(), dir);
+        compileResult.getCompiledClasses().merge(testCompileResult.getCompiledClasses()).writeTo(workspace.getClassesDir());
+        compiled.add(workspace);
+      }
+    }
+
+    // Whatever the checker prints while being measured is discarded, so it does not end up between the results
+    originalOut = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.setOut(originalOut);
+    testRunner.close();
+    compiled.forEach(Workspace::close);
+    compiled.clear();
+    submissions.delete();
+  }
+
+  /**
+   * Compiles the classes of every submission with {@link Compiler#compileInMemory}, and the test class against them when
+   * they compile, as {@link Checker#checkAll} does.
+   */
+  @Benchmark
+  public int compileInMemory() {
+    int successful = 0;
+    for (Path dir : submissions.getSubmissionDirs()) {
+      Compiler.CompileResult compileResult = compiler.compileInMemory(dir, CompiledClasses.empty(), resolve(dir, submissions.getClassFileNames()));
+      if (compileResult.isSuccessful()
+              && compiler.compileInMemory(dir, compileResult.getCompiledClasses(), Collections.singletonList(submissions.getTestFile())).isSuccessful()) {
+        successful++;
+      }
+    }
+    return successful;
+  }
+
+  /**
+   * Runs the tests of every submission that compiles with {@link TestRunner#runTests}.
+   */
+  @Benchmark
+  public List<TestRunner.TestRunResult> runTests() {
+    List<String> testClasses = Collections.singletonList(SyntheticSubmissions.TEST_CLASS);
+    List<TestRunner.TestRunResult> testResults = new ArrayList<>();
+    for (Workspace workspace : compiled) {
+      testResults.addAll(testRunner.runTests(workspace.getClasspath(), testClasses));
+    }
+    return testResults;
+  }
+
+  /**
+   * Checks the whole batch with {@link Checker#checkAll}, with a new checker every operation.
+   */
+  @Benchmark
+  public void checkAll() {
+    List<Path> testClasses = Collections.singletonList(submissions.getTestFile());
+    try (Checker checker = new Checker(junitLibPath, submissions.getSubmissionsDir(), submissions.getClassFileNames(), testClasses, settings)) {
+      checker.checkAll(workDir, "checkall.csv");
+    }
+  }
+
+  /**
+   * Writes a csv file with {@link SubmissionResultCsvWriter#createAndSave} for results that look like the ones of the
+   * synthetic submissions, with output as large as the output cap for submissions printing too much.
+   */
+  @Benchmark
+  public void csv() {
+    new SubmissionResultCsvWriter().createAndSave(results, workDir, "csv.csv");
+  }
+
+  private List<SubmissionCheckResult> syntheticResults() {
+    List<Path> dirs = submissions.getSubmissionDirs();
+    List<SubmissionCheckResult> syntheticResults = new ArrayList<>(dirs.size());
+    StringBuilder heavyOutput = new StringBuilder();
+    while (heavyOutput.length() < settings.getTestRunSettings().getOutputCap()) {
+      heavyOutput.append("line ").append(heavyOutput.length()).append(" of a submission printing far too much, \"quoted\"\n");
+    }
+
+    for (int i = 0; i < dirs.size(); i++) {
+      Path dir = dirs.get(i);
+      Compiler.CompileResult compileResult = Compiler.CompileResult.successful("");
+      TestRunner.TestRunResult testResult;
+
+      switch (submissions.getKinds().get(i)) {
+        case COMPILE_ERROR:
+          syntheticResults.add(SubmissionCheckResult.compilationErrors(dir, Compiler.CompileResult.unsuccessful(
+                  dir.resolve("Part0.java") + ":5: error: ';' expected\n    return x * 2\n                ^\n1 error\n")));
+          continue;
+        case FAILING:
+          testResult = TestRunner.TestRunResult.unsuccessful(".F\nTime: 0,002\nThere was 1 failure:\n1) testPart0(SyntheticTest)"
+                  + "junit.framework.AssertionFailedError: expected:<6> but was:<7>\n\nFAILURES!!!\nTests run: 1,  Failures: 1,  Errors: 0\n", "");
+          break;
+        case TIMEOUT:
+          testResult = TestRunner.TestRunResult.timeout();
+          break;
+        case OUTPUT_HEAVY:
+          testResult = TestRunner.TestRunResult.successful(heavyOutput.toString());
+          break;
+        default:
+          testResult = TestRunner.TestRunResult.successful(".\nTime: 0,001\n\nOK (1 test)\n\n");
+          break;
+      }
+
+      syntheticResults.add(SubmissionCheckResult.allSuccessful(dir, compileResult, compileResult, Collections.singletonList(testResult)));
+    }
+
+    return syntheticResults;
+  }
+
+  private static List<Path> resolve(Path dir, List<String> fileNames) {
+    List<Path> paths = new ArrayList<>();
+    for (String fileName : fileNames) {
+      paths.add(dir.resolve(fileName));
+    }
+    return paths;
+  }
+}
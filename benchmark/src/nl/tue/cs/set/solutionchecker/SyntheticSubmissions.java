@@ -0,0 +1,219 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates a tree of submissions to benchmark the checker with: {@code students} submission directories with
+ * {@code classes} classes each, and one test class testing all of them. Every submission is one of the {@link Kind}s,
+ * picked with a fixed seed so the same parameters always produce the same tree.
+ */
+class SyntheticSubmissions {
+  static final String TEST_CLASS = "SyntheticTest";
+
+  private final Path root;
+  private final int students;
+  private final int classes;
+  private final long seed;
+  private final List<Kind> kinds;
+
+  SyntheticSubmissions(Path root, int students, int classes, long seed) {
+    if (students < 1 || classes < 1) {
+      throw new IllegalArgumentException("Number of students and classes must be at least 1");
+    }
+
+    this.root = root;
+    this.students = students;
+    this.classes = classes;
+    this.seed = seed;
+    this.kinds = pickKinds(students, seed);
+  }
+
+  /**
+   * Removes anything left in the root directory and writes the tests and all submissions.
+   */
+  void generate() {
+    try {
+      delete(root);
+      Files.createDirectories(getTestsDir());
+
+      write(getTestsDir().resolve(TEST_CLASS + ".java"), testSource());
+      for (int student = 0; student < students; student++) {
+        Path dir = getSubmissionsDir().resolve(String.format("student%04d", student));
+        Files.createDirectories(dir);
+
+        for (int c = 0; c < classes; c++) {
+          write(dir.resolve(className(c) + ".java"), classSource(c, kinds.get(student)));
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to generate synthetic submissions in \'" + root + "\', reason: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Removes the root directory with everything in it.
+   */
+  void delete() {
+    try {
+      delete(root);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to delete synthetic submissions in \'" + root + "\', reason: " + e.getMessage(), e);
+    }
+  }
+
+  Path getSubmissionsDir() {
+    return root.resolve("submissions");
+  }
+
+  Path getTestsDir() {
+    return root.resolve("tests");
+  }
+
+  Path getTestFile() {
+    return getTestsDir().resolve(TEST_CLASS + ".java");
+  }
+
+  List<Path> getSubmissionDirs() {
+    List<Path> dirs = new ArrayList<>();
+    for (int student = 0; student < students; student++) {
+      dirs.add(getSubmissionsDir().resolve(String.format("student%04d", student)));
+    }
+    return dirs;
+  }
+
+  List<String> getClassFileNames() {
+    List<String> names = new ArrayList<>();
+    for (int c = 0; c < classes; c++) {
+      names.add(className(c) + ".java");
+    }
+    return names;
+  }
+
+  List<Kind> getKinds() {
+    return Collections.unmodifiableList(kinds);
+  }
+
+  long count(Kind kind) {
+    return kinds.stream().filter(k -> k == kind).count();
+  }
+
+  long getSeed() {
+    return seed;
+  }
+
+  private static List<Kind> pickKinds(int students, long seed) {
+    Random random = new Random(seed);
+    int totalWeight = 0;
+    for (Kind kind : Kind.values()) {
+      totalWeight += kind.weight;
+    }
+
+    List<Kind> kinds = new ArrayList<>(students);
+    for (int student = 0; student < students; student++) {
+      int pick = random.nextInt(totalWeight);
+      for (Kind kind : Kind.values()) {
+        pick -= kind.weight;
+        if (pick < 0) {
+          kinds.add(kind);
+          break;
+        }
+      }
+    }
+    return kinds;
+  }
+
+  private static String className(int c) {
+    return "Part" + c;
+  }
+
+  /**
+   * Only the first class of a submission differs per kind, the other classes are always correct.
+   */
+  private static String classSource(int c, Kind kind) {
+    String body = "    return x * " + (c + 2) + ";\n";
+    if (c == 0) {
+      switch (kind) {
+        case COMPILE_ERROR:
+          body = "    return x * " + (c + 2) + "\n";
+          break;
+        case FAILING:
+          body = "    return x * " + (c + 2) + " + 1;\n";
+          break;
+        case TIMEOUT:
+          body = "    while (x == x) {\n      Thread.onSpinWait();\n    }\n    return 0;\n";
+          break;
+        case OUTPUT_HEAVY:
+          body = "    for (int i = 0; i < 50000; i++) {\n      System.out.println(\"line \" + i + \" of a submission printing far too much\");\n    }\n" + body;
+          break;
+        default:
+          break;
+      }
+    }
+
+    return "public class " + className(c) + " {\n"
+            + "  private int calls;\n\n"
+            + "  public int compute(int x) {\n"
+            + "    calls++;\n"
+            + body
+            + "  }\n\n"
+            + "  public int getCalls() {\n"
+            + "    return calls;\n"
+            + "  }\n"
+            + "}\n";
+  }
+
+  private String testSource() {
+    StringBuilder source = new StringBuilder();
+    source.append("import junit.framework.TestCase;\n\n");
+    source.append("public class ").append(TEST_CLASS).append(" extends TestCase {\n");
+    for (int c = 0; c < classes; c++) {
+      source.append("  public void test").append(className(c)).append("() {\n");
+      source.append("    ").append(className(c)).append(" part = new ").append(className(c)).append("();\n");
+      source.append("    assertEquals(").append(3 * (c + 2)).append(", part.compute(3));\n");
+      source.append("    assertEquals(1, part.getCalls());\n");
+      source.append("  }\n\n");
+    }
+    source.append("}\n");
+    return source.toString();
+  }
+
+  private static void write(Path file, String content) throws IOException {
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void delete(Path dir) throws IOException {
+    if (!Files.exists(dir)) {
+      return;
+    }
+
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  enum Kind {
+    PASSING(14),
+    COMPILE_ERROR(2),
+    FAILING(3),
+    TIMEOUT(1),
+    OUTPUT_HEAVY(2);
+
+    /** Relative chance of a submission being of this kind */
+    private final int weight;
+
+    Kind(int weight) {
+      this.weight = weight;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the command line arguments of the main classes, which are pairs of a key and a value, e.g.
+ * {@code -outputdir ./results}.
+ */
+final class Arguments {
+  private Arguments() {
+  }
+
+  /**
+   * @return the value of the first pair with the key, or null if there is none
+   */
+  static String getValue(String[] args, String key) {
+    List<String> values = getValues(args, key);
+    return values.isEmpty() ? null : values.get(0);
+  }
+
+  /**
+   * @return the values of all pairs with the key, in the order they were given
+   */
+  static List<String> getValues(String[] args, String key) {
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < args.length - 1; i += 2) {
+      if (key.equals(args[i])) {
+        values.add(args[i + 1]);
+      }
+    }
+
+    return values;
+  }
+}
@@ -0,0 +1,110 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the phase timings of all submissions of a batch and summarizes them: percentiles per phase, throughput and
+ * the slowest submissions. Only the timings are kept, not the results themselves.
+ */
+public class BatchMetrics {
+  private static final int SLOWEST_SHOWN = 5;
+
+  private final long startNanos;
+  private final Map<PhaseTimings.Phase, List<Long>> wall = new EnumMap<>(PhaseTimings.Phase.class);
+  private final Map<PhaseTimings.Phase, List<Long>> cpu = new EnumMap<>(PhaseTimings.Phase.class);
+  private final List<Slow> slowest = new ArrayList<>();
+  private int submissions;
+
+  public BatchMetrics() {
+    this.startNanos = System.nanoTime();
+  }
+
+  public synchronized void record(SubmissionCheckResult result) {
+    submissions++;
+
+    PhaseTimings timings = result.getTimings();
+    for (PhaseTimings.Phase phase : PhaseTimings.Phase.values()) {
+      if (timings.has(phase)) {
+        wall.computeIfAbsent(phase, p -> new ArrayList<>()).add(timings.getWallNanos(phase));
+        if (timings.getCpuNanos(phase) >= 0) {
+          cpu.computeIfAbsent(phase, p -> new ArrayList<>()).add(timings.getCpuNanos(phase));
+        }
+      }
+    }
+
+    slowest.add(new Slow(result.getPath(), timings.getWallNanos(PhaseTimings.Phase.TOTAL)));
+    slowest.sort(Comparator.comparingLong((Slow s) -> s.totalNanos).reversed());
+    if (slowest.size() > SLOWEST_SHOWN) {
+      slowest.remove(SLOWEST_SHOWN);
+    }
+  }
+
+  public synchronized String summary() {
+    double elapsedMinutes = (System.nanoTime() - startNanos) / 60e9;
+    StringBuilder summary = new StringBuilder();
+
+    summary.append(String.format("Checked %d submission(s) in %.1f s, %.1f submissions/min%n",
+            submissions, elapsedMinutes * 60, elapsedMinutes > 0 ? submissions / elapsedMinutes : 0));
+    summary.append(String.format("%-18s %10s %10s %10s %10s %10s %10s%n", "Phase (ms)", "wall p50", "wall p95", "wall max", "cpu p50", "cpu p95", "cpu max"));
+
+    for (PhaseTimings.Phase phase : PhaseTimings.Phase.values()) {
+      if (!wall.containsKey(phase)) {
+        continue;
+      }
+
+      long[] wallMillis = percentiles(wall.get(phase));
+      long[] cpuMillis = cpu.containsKey(phase) ? percentiles(cpu.get(phase)) : null;
+      summary.append(String.format("%-18s %10d %10d %10d %10s %10s %10s%n", phase.getLabel(), wallMillis[0], wallMillis[1], wallMillis[2],
+              cpuMillis == null ? "" : cpuMillis[0], cpuMillis == null ? "" : cpuMillis[1], cpuMillis == null ? "" : cpuMillis[2]));
+    }
+
+    summary.append("Slowest submissions:").append(System.lineSeparator());
+    for (Slow slow : slowest) {
+      summary.append(String.format("  %8d ms  %s%n", slow.totalNanos / 1_000_000, slow.path));
+    }
+
+    return summary.toString();
+  }
+
+  public void save(Path file) {
+    try {
+      Files.write(file, summary().getBytes(Charset.defaultCharset()));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to save metrics, reason: " + e.getMessage());
+    }
+  }
+
+  /**
+   * @return p50, p95 and max in milliseconds
+   */
+  private static long[] percentiles(List<Long> nanos) {
+    long[] sorted = nanos.stream().mapToLong(Long::longValue).toArray();
+    Arrays.sort(sorted);
+
+    return new long[] {percentile(sorted, 50) / 1_000_000, percentile(sorted, 95) / 1_000_000, sorted[sorted.length - 1] / 1_000_000};
+  }
+
+  private static long percentile(long[] sorted, int percentile) {
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, index)];
+  }
+
+  private static class Slow {
+    private final Path path;
+    private final long totalNanos;
+
+    Slow(Path path, long totalNanos) {
+      this.path = path;
+      this.totalNanos = totalNanos;
+    }
+  }
+}
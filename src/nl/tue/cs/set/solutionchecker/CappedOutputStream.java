@@ -0,0 +1,76 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Keeps at most {@code cap} bytes of everything written to it and only counts the rest, so the memory used for the
+ * output of a test run stays bounded even when the tested code prints in an endless loop. Once the cap is reached the
+ * last {@link #TAIL} bytes are kept as well, so the report JUnit prints at the end survives (see {@link TestReport}).
+ */
+class CappedOutputStream extends OutputStream {
+  static final int TAIL = 4 * 1024;
+
+  private final int cap;
+  private final ByteArrayOutputStream kept;
+  private final byte[] tail = new byte[TAIL];
+  private long discarded;
+
+  CappedOutputStream(int cap) {
+    if (cap < 0) {
+      throw new IllegalArgumentException("Cap must not be negative");
+    }
+
+    this.cap = cap;
+    this.kept = new ByteArrayOutputStream(Math.min(cap, 16 * 1024));
+  }
+
+  @Override
+  public synchronized void write(int b) {
+    if (kept.size() < cap) {
+      kept.write(b);
+    } else {
+      tail[(int) (discarded % TAIL)] = (byte) b;
+      discarded++;
+    }
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len) {
+    int toKeep = Math.min(len, cap - kept.size());
+    kept.write(b, off, toKeep);
+
+    // Only the last bytes end up in the tail
+    int start = off + toKeep + Math.max(0, len - toKeep - TAIL);
+    discarded += start - off - toKeep;
+    for (int i = start; i < off + len; i++) {
+      tail[(int) (discarded % TAIL)] = b[i];
+      discarded++;
+    }
+  }
+
+  synchronized boolean isTruncated() {
+    return discarded > 0;
+  }
+
+  /**
+   * @return the kept output, followed by a line saying how much was left out when the cap was reached and the last
+   *         bytes of the output
+   */
+  synchronized String toString(Charset charset) {
+    String output = kept.toString(charset);
+    if (isTruncated()) {
+      int tailLength = (int) Math.min(discarded, TAIL);
+      byte[] last = new byte[tailLength];
+      for (int i = 0; i < tailLength; i++) {
+        last[i] = tail[(int) ((discarded - tailLength + i) % TAIL)];
+      }
+
+      output += "\n[output truncated after " + cap + " bytes, " + (discarded - tailLength) + " more bytes not shown]\n"
+              + new String(last, charset);
+    }
+
+    return output;
+  }
+}
@@ -1,80 +1,589 @@
 package nl.tue.cs.set.solutionchecker;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-public class Checker {
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class Checker implements AutoCloseable {
   private final List<String> javaClasses;
   private final List<Path> testClasses;
   private final Path basePath;
+  private final Path junitLibPath;
+  private final CheckerSettings settings;
 
-  private final Copier copier;
   private final Compiler compiler;
   private final TestRunner testRunner;
 
+  private static final int CALIBRATION_RUNS = 3;
+  private static final long CALIBRATION_CPU_MILLIS = 60_000;
+  private static final long WATCH_DEBOUNCE_MILLIS = 2_000;
+  private static final int SIMILAR_PAIRS_REPORTED = 1_000;
+  private static final int SHARED_OUTPUTS_SHOWN = 5;
+
+  private final AtomicReference<PrecompiledTests> precompiledTests = new AtomicReference<>();
+  private ResultCache resultCache;
+  private SimilarityIndex similarityIndex;
+  private Path concurrencyLog;
+
   public Checker(Path junitLibPath, Path basePath, List<String> javaClasses, List<Path> testClasses) {
+    this(junitLibPath, basePath, javaClasses, testClasses, CheckerSettings.defaults());
+  }
+
+  public Checker(Path junitLibPath, Path basePath, List<String> javaClasses, List<Path> testClasses, CheckerSettings settings) {
+    this(new Compiler(junitLibPath), junitLibPath, basePath, javaClasses, testClasses, settings);
+  }
+
+  /**
+   * @param compiler compiler for the JUnit lib, e.g. one that already compiled other batches and so is warmed up
+   */
+  Checker(Compiler compiler, Path junitLibPath, Path basePath, List<String> javaClasses, List<Path> testClasses, CheckerSettings settings) {
     this.javaClasses = javaClasses;
     this.testClasses = testClasses;
     this.basePath = basePath;
+    this.junitLibPath = junitLibPath;
+    this.settings = settings;
 
-    copier = new Copier(this.testClasses);
-    compiler = new Compiler(junitLibPath);
-    testRunner = new TestRunner(junitLibPath);
+    this.compiler = compiler;
+    testRunner = new TestRunner(junitLibPath, settings.getTestRunSettings());
   }
 
   public void checkAll(Path outputDir, String csvFileName) {
-    System.out.println("Start checking. Base path \'" + basePath + "\'");
-    List<SubmissionCheckResult> results = new ArrayList<>();
+    checkAll(outputDir, csvFileName, result -> { });
+  }
+
+  /**
+   * @param observer receives every result as soon as it is available
+   * @throws UncheckedIOException when the submissions cannot be listed or the results cannot be saved
+   */
+  void checkAll(Path outputDir, String csvFileName, Consumer<SubmissionCheckResult> observer) {
+    System.out.println("Start checking. Base path \'" + basePath + "\'" + (settings.getShard().isAll() ? "" : ", shard " + settings.getShard())
+            + " using " + settings.getThreads() + " compile and " + settings.getTestThreads() + " test thread(s)");
 
     try {
-      DirectoryStream<Path> dirs = Files.newDirectoryStream(basePath);
+      if (settings.getReferenceSolution() != null) {
+        testRunner.setTimeouts(calibrateTimeouts(settings.getReferenceSolution()));
+      }
+      System.out.println("Test time budgets: " + testRunner.getTimeouts());
+      System.out.println("Test resource limits: " + settings.getTestRunSettings().getResourceLimits());
+
+      concurrencyLog = outputDir.resolve(csvFileName + ".concurrency.log");
+      if (settings.isResultCache()) {
+        resultCache = new ResultCache(outputDir.resolve(csvFileName + ".cache"), junitLibPath, javaClasses, testClasses, settings.getTestRunSettings(),
+                testRunner.getTimeouts());
+      }
+
+      if (settings.isSimilarityReport()) {
+        similarityIndex = new SimilarityIndex();
+      }
 
-      for (Path dir : dirs) {
-        if (Files.isDirectory(dir)) {
-          results.add(checkDir(dir));
+      List<PendingCheck> checks = order(listSubmissionDirs());
+
+      BatchMetrics metrics = new BatchMetrics();
+      OutputStore outputStore = settings.isDedupOutput() ? new OutputStore() : null;
+      // Rows are saved as soon as a submission is checked, so a stopped batch keeps what it checked. With RECENT they are
+      // sorted by path afterwards from the JSON Lines file, which is then needed as well
+      boolean recent = settings.getOrder() == CheckerSettings.SubmissionOrder.RECENT;
+      boolean json = isJsonResults() || recent;
+      String jsonFileName = isJsonResults() ? csvFileName + ".jsonl" : csvFileName + ".recent.jsonl";
+      try (SubmissionResultCsvWriter csvWriter = new SubmissionResultCsvWriter(outputStore);
+           SubmissionResultJsonWriter jsonWriter = new SubmissionResultJsonWriter()) {
+        csvWriter.open(outputDir, csvFileName);
+        if (json) {
+          jsonWriter.open(outputDir, jsonFileName);
+          if (!settings.getShard().isAll()) {
+            jsonWriter.writeShard(settings.getShard());
+          }
         }
+        checkDirs(checks, result -> {
+          csvWriter.append(result);
+          if (json) {
+            jsonWriter.append(result);
+          }
+          metrics.record(result);
+          observer.accept(result);
+        });
+      }
+      if (recent) {
+        outputStore = settings.isDedupOutput() ? new OutputStore() : null;
+        sortByPath(outputDir.resolve(jsonFileName), outputDir, csvFileName, outputStore);
+        if (!isJsonResults()) {
+          Files.delete(outputDir.resolve(jsonFileName));
+        }
+      }
+
+      System.out.print(metrics.summary());
+      metrics.save(outputDir.resolve(csvFileName + ".summary.txt"));
+      if (outputStore != null) {
+        System.out.print(outputStore.summary(SHARED_OUTPUTS_SHOWN));
+        outputStore.appendSummary(outputDir.resolve(csvFileName + ".summary.txt"), SHARED_OUTPUTS_SHOWN);
       }
 
-      System.out.println("Done, saving results");
-      SubmissionResultCsvWriter csvWriter = new SubmissionResultCsvWriter();
-      csvWriter.createAndSave(results, outputDir, csvFileName);
+      if (resultCache != null) {
+        resultCache.prune();
+      }
+
+      if (similarityIndex != null) {
+        List<SimilarityIndex.SimilarPair> pairs = similarityIndex.mostSimilar(SIMILAR_PAIRS_REPORTED);
+        new SimilarityCsvWriter().createAndSave(pairs, outputDir, csvFileName + ".similarity.csv");
+        System.out.println("Compared the sources of " + similarityIndex.size() + " submission(s), " + pairs.size() + " similar pair(s) saved");
+        // Rechecks in watch mode do not update the report
+        similarityIndex = null;
+      }
+
+      System.out.println("Done, results saved");
 
     } catch (IOException e) {
-      e.printStackTrace();
+      throw new UncheckedIOException("Unable to check the submissions, reason: " + e.getMessage(), e);
     }
   }
 
-  private SubmissionCheckResult checkDir(Path dir) {
-    System.out.println("Checking \'" + dir + "\'");
+  /**
+   * Checks all submissions like {@link #checkAll}, then keeps watching the base path and checks every submission that
+   * changes again, once it did not change for {@link #WATCH_DEBOUNCE_MILLIS}. After every such check the csv (and
+   * JSON) file is replaced by one with the updated results, the summary stays the one of the first check. The
+   * results of all submissions are kept in memory for this. Runs until the thread is interrupted or the JVM stops.
+   */
+  public void watch(Path outputDir, String csvFileName) {
+    Map<Path, SubmissionCheckResult> results = new TreeMap<>();
+
+    // Watching starts before the first check, so submissions that change while it runs are checked again afterwards
+    try (SubmissionWatcher watcher = new SubmissionWatcher(basePath, outputDir, WATCH_DEBOUNCE_MILLIS)) {
+      checkAll(outputDir, csvFileName, result -> results.put(result.getPath(), result));
+
+      while (true) {
+        System.out.println("Watching \'" + basePath + "\' for changes");
+        Set<Path> changed = watcher.awaitChanges();
+
+        long start = System.nanoTime();
+        int checked = recheck(changed, results);
+        saveResults(outputDir, csvFileName, results.values());
+        System.out.println("Checked " + checked + " changed submission(s) in " + (System.nanoTime() - start) / 1_000_000 + " ms, results saved");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 
-    List<Path> testFiles = copier.copyTests(dir);
-    if (testFiles == null || testFiles.isEmpty()) {
-      throw new IllegalStateException("Unable to copy test classes to submission directory");
+  /**
+   * Checks the changed submissions and updates {@code results}: removed submissions are dropped and the results stay
+   * sorted by path.
+   *
+   * @return the number of submissions checked
+   */
+  private int recheck(Set<Path> changed, Map<Path, SubmissionCheckResult> results) {
+    List<Path> dirs = new ArrayList<>();
+    for (Path dir : changed) {
+      if (!settings.getShard().contains(dir)) {
+        continue;
+      } else if (Files.isDirectory(dir)) {
+        dirs.add(dir);
+      } else if (results.remove(dir) != null) {
+        System.out.println("Removed \'" + dir + "\'");
+      }
     }
+    dirs.sort(null);
+
+    Map<Path, SubmissionCheckResult> updated = new LinkedHashMap<>();
+    checkDirs(order(dirs), result -> updated.put(result.getPath(), result));
 
-    Compiler.CompileResult compileResult = compiler.compile(dir, resolveJavaClassPaths(dir, javaClasses));
+    Map<Path, SubmissionCheckResult> merged = new TreeMap<>(results);
+    merged.putAll(updated);
 
-    if (!compileResult.isSuccessful()) {
-      return SubmissionCheckResult.compilationErrors(dir, compileResult);
+    results.clear();
+    results.putAll(merged);
+    return dirs.size();
+  }
+
+  /**
+   * Replaces the csv (and JSON) file with one holding the results, written to a temporary file first so a reader never
+   * sees a half written file.
+   */
+  private void saveResults(Path outputDir, String csvFileName, Collection<SubmissionCheckResult> results) {
+    replace(outputDir, csvFileName, temp -> new SubmissionResultCsvWriter(settings.isDedupOutput() ? new OutputStore() : null)
+            .createAndSave(new ArrayList<>(results), outputDir, temp));
+
+    if (isJsonResults()) {
+      replace(outputDir, csvFileName + ".jsonl", temp -> {
+        try (SubmissionResultJsonWriter jsonWriter = new SubmissionResultJsonWriter()) {
+          jsonWriter.open(outputDir, temp);
+          if (!settings.getShard().isAll()) {
+            jsonWriter.writeShard(settings.getShard());
+          }
+          results.forEach(jsonWriter::append);
+        }
+      });
+    }
+  }
+
+  /**
+   * Replaces the csv file with one holding the results in the JSON Lines file sorted by path. Only the location of
+   * every result is kept in memory, like {@link ShardMerger} does, the results are read one at a time while writing.
+   */
+  private static void sortByPath(Path jsonFile, Path outputDir, String csvFileName, OutputStore outputStore) {
+    SubmissionResultJsonReader reader = new SubmissionResultJsonReader(jsonFile);
+    Map<Path, Long> offsets = new TreeMap<>(reader.index());
+
+    replace(outputDir, csvFileName, temp -> {
+      try (SubmissionResultCsvWriter csvWriter = new SubmissionResultCsvWriter(outputStore)) {
+        csvWriter.open(outputDir, temp);
+        for (long offset : offsets.values()) {
+          csvWriter.append(reader.readAt(offset));
+        }
+      }
+    });
+  }
+
+  /**
+   * @return whether the results are saved as JSON Lines as well, which shards always do so they can be merged
+   */
+  private boolean isJsonResults() {
+    return settings.isJsonResults() || !settings.getShard().isAll();
+  }
+
+  private static void replace(Path outputDir, String fileName, Consumer<String> writer) {
+    String temp = fileName + ".tmp";
+    writer.accept(temp);
+
+    try {
+      Files.move(outputDir.resolve(temp), outputDir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to save \'" + fileName + "\', reason: " + e.getMessage(), e);
     }
+  }
+
+  /**
+   * Runs the tests against the reference solution a few times and bases the budget of every test class on the most CPU
+   * time it needed. The reference solution always runs in a new JVM per test class, so the JVM startup is included.
+   */
+  private TestTimeouts calibrateTimeouts(Path referenceDir) {
+    System.out.println("Calibrating test time budgets with reference solution \'" + referenceDir + "\'");
 
-    Compiler.CompileResult testCompileResult = compiler.compile(dir, testFiles);
+    Compiler.CompileResult compileResult = compiler.compileInMemory(referenceDir, CompiledClasses.empty(), resolveJavaClassPaths(referenceDir, javaClasses));
+    Compiler.CompileResult testCompileResult = compileResult.isSuccessful()
+            ? compiler.compileInMemory(referenceDir, compileResult.getCompiledClasses(), testClasses) : compileResult;
     if (!testCompileResult.isSuccessful()) {
-      return SubmissionCheckResult.compilationErrorsOnTestFiles(dir, compileResult, testCompileResult);
+      throw new IllegalStateException("Unable to calibrate test time budgets, reference solution does not compile: " + testCompileResult.getError());
     }
 
-    List<TestRunner.TestRunResult> testResults = testRunner.runTests(dir, getFileNamesOnly(testClasses));
-    return SubmissionCheckResult.allSuccessful(dir, compileResult, testCompileResult, testResults);
+    TestRunSettings calibrationSettings = settings.getTestRunSettings()
+            .withMode(TestRunner.TestRunMode.FORK)
+            .withTimeouts(TestTimeouts.defaults().withDefaultCpuMillis(CALIBRATION_CPU_MILLIS));
+    List<String> testClassNames = getFileNamesOnly(testClasses);
+    long[] maxCpuNanos = new long[testClassNames.size()];
+
+    try (TestRunner calibrationRunner = new TestRunner(junitLibPath, calibrationSettings);
+         Workspace workspace = Workspace.create(settings.getWorkspaceRoot(), referenceDir)) {
+      compileResult.getCompiledClasses().merge(testCompileResult.getCompiledClasses()).writeTo(workspace.getClassesDir());
+
+      for (int run = 0; run < CALIBRATION_RUNS; run++) {
+        List<TestRunner.TestRunResult> results = calibrationRunner.runTests(workspace.getClasspath(), testClassNames);
+
+        for (int i = 0; i < results.size(); i++) {
+          TestRunner.TestRunResult result = results.get(i);
+          if (!result.isSuccessful()) {
+            throw new IllegalStateException("Unable to calibrate test time budgets, reference solution does not pass \'"
+                    + testClassNames.get(i) + "\' (" + result.getOutcome() + ")");
+          }
+          // Without the CPU time the wall clock time is the best estimate there is
+          long cpuNanos = result.getCpuNanos() >= 0 ? result.getCpuNanos() : result.getWallNanos();
+          maxCpuNanos[i] = Math.max(maxCpuNanos[i], cpuNanos);
+        }
+      }
+    }
+
+    TestTimeouts timeouts = settings.getTestRunSettings().getTimeouts();
+    for (int i = 0; i < testClassNames.size(); i++) {
+      timeouts = timeouts.withCalibratedCpuMillis(testClassNames.get(i), maxCpuNanos[i] / 1_000_000);
+    }
+    return timeouts;
+  }
+
+  private List<Path> listSubmissionDirs() throws IOException {
+    List<Path> dirs = new ArrayList<>();
+
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(basePath)) {
+      for (Path dir : stream) {
+        if (Files.isDirectory(dir) && settings.getShard().contains(dir)) {
+          dirs.add(dir);
+        }
+      }
+    }
+
+    // Sorted so that the rows in the report do not depend on file system or thread scheduling order
+    dirs.sort(null);
+    return dirs;
+  }
+
+  /**
+   * Orders the submissions as configured, see {@link CheckerSettings.SubmissionOrder}. For {@code RECENT} the cache
+   * keys are computed here already, so they are not computed again when checking.
+   */
+  private List<PendingCheck> order(List<Path> dirs) {
+    List<PendingCheck> checks = new ArrayList<>(dirs.size());
+    for (Path dir : dirs) {
+      checks.add(new PendingCheck(dir));
+    }
+
+    if (settings.getOrder() != CheckerSettings.SubmissionOrder.RECENT) {
+      return checks;
+    }
+
+    Map<PendingCheck, Long> lastModified = new HashMap<>();
+    Map<PendingCheck, Boolean> cached = new HashMap<>();
+    for (PendingCheck check : checks) {
+      lastModified.put(check, lastModified(check.dir));
+      if (resultCache != null) {
+        try {
+          check.cacheKey = resultCache.keyFor(check.dir);
+          cached.put(check, resultCache.contains(check.cacheKey));
+        } catch (IllegalStateException e) {
+          // Reported when checking the submission
+        }
+      }
+    }
+
+    checks.sort(Comparator.<PendingCheck, Boolean>comparing(c -> cached.getOrDefault(c, false))
+            .thenComparing(c -> lastModified.get(c), Comparator.reverseOrder())
+            .thenComparing(c -> c.dir));
+    return checks;
+  }
+
+  private static long lastModified(Path dir) {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile).mapToLong(f -> {
+        try {
+          return Files.getLastModifiedTime(f).toMillis();
+        } catch (IOException e) {
+          return 0;
+        }
+      }).max().orElse(0);
+    } catch (IOException | UncheckedIOException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Checks the submissions in two stages with their own threads: compiling the submission and the tests, which is
+   * CPU-bound work inside this JVM, and running the tests, which mostly waits for the test JVMs. Submissions that do
+   * not compile skip the second stage. The results are handed to {@code resultConsumer} in the order of {@code checks}
+   * as soon as they are available. Only a limited number of submissions is checked ahead of the oldest unfinished one,
+   * so the number of results (and compiled classes) waiting does not grow with the number of submissions.
+   */
+  private void checkDirs(List<PendingCheck> checks, Consumer<SubmissionCheckResult> resultConsumer) {
+    ExecutorService compileExecutor = Executors.newFixedThreadPool(settings.getThreads());
+    ExecutorService testExecutor = Executors.newFixedThreadPool(settings.getTestThreads());
+    int window = (settings.getThreads() + settings.getTestThreads()) * 2;
+    // The threads are the most that can run at the same time, the controller decides how many of them may
+    ConcurrencyController controller = settings.isAdaptiveConcurrency() ? new ConcurrencyController(settings.getThreads(),
+            settings.getTestThreads(), settings.getTestRunSettings().getResourceLimits(), concurrencyLog) : null;
+    ConcurrencyController.Limit compileLimit = controller != null ? controller.getCompileLimit() : null;
+    ConcurrencyController.Limit testLimit = controller != null ? controller.getTestLimit() : null;
+
+    try {
+      Deque<Future<SubmissionCheckResult>> pending = new ArrayDeque<>(window);
+      int submitted = 0;
+
+      for (int consumed = 0; consumed < checks.size(); consumed++) {
+        while (submitted < checks.size() && pending.size() < window) {
+          PendingCheck check = checks.get(submitted++);
+          pending.add(CompletableFuture.supplyAsync(() -> limited(compileLimit, () -> compileStage(check)), compileExecutor)
+                  .thenCompose(c -> c.result != null ? CompletableFuture.completedFuture(c)
+                          : CompletableFuture.supplyAsync(() -> limited(testLimit, () -> testStage(c)), testExecutor))
+                  .thenApply(this::finish));
+        }
+
+        resultConsumer.accept(awaitResult(checks.get(consumed).dir, pending.poll()));
+      }
+    } finally {
+      if (controller != null) {
+        controller.close();
+      }
+      compileExecutor.shutdownNow();
+      testExecutor.shutdownNow();
+    }
+  }
+
+  private static PendingCheck limited(ConcurrencyController.Limit limit, Supplier<PendingCheck> stage) {
+    return limit != null ? limit.run(stage) : stage.get();
+  }
+
+  private SubmissionCheckResult awaitResult(Path dir, Future<SubmissionCheckResult> future) {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause() != null ? e.getCause() : e;
+      System.out.println("Checking \'" + dir + "\' failed, reason: " + cause.getMessage());
+      return SubmissionCheckResult.checkFailed(dir, cause.toString());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for results of \'" + dir + "\'", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    testRunner.close();
+  }
+
+  private PendingCheck compileStage(PendingCheck check) {
+    return runStage("Compilation", check, () -> {
+      if (resultCache != null) {
+        if (check.cacheKey == null) {
+          check.cacheKey = resultCache.keyFor(check.dir);
+        }
+
+        SubmissionCheckResult cached = resultCache.load(check.cacheKey, check.dir);
+        if (cached != null) {
+          System.out.println("Unchanged \'" + check.dir + "\', using cached result");
+          check.result = cached;
+          check.fromCache = true;
+          if (similarityIndex != null) {
+            // Not compiled, so the sources are only parsed
+            similarityIndex.add(check.dir, SourceFingerprints.of(compiler.parse(resolveJavaClassPaths(check.dir, javaClasses))));
+          }
+          return;
+        }
+      }
+
+      System.out.println("Checking \'" + check.dir + "\'");
+
+      if (testClasses.isEmpty()) {
+        throw new IllegalStateException("No test classes to check the submission with");
+      }
+
+      SourceFingerprints fingerprints = similarityIndex != null ? new SourceFingerprints() : null;
+      check.compileResult = check.timings.measure(PhaseTimings.Phase.COMPILE,
+              () -> compiler.compileInMemory(check.dir, CompiledClasses.empty(), resolveJavaClassPaths(check.dir, javaClasses), fingerprints));
+      if (fingerprints != null) {
+        similarityIndex.add(check.dir, fingerprints.get());
+      }
+      if (!check.compileResult.isSuccessful()) {
+        check.result = SubmissionCheckResult.compilationErrors(check.dir, check.compileResult);
+        return;
+      }
+
+      // The tests are compiled from where they are, against the classes of the submission
+      check.testCompileResult = check.timings.measure(PhaseTimings.Phase.TEST_COMPILE,
+              () -> compileTests(check.dir, testClasses, check.compileResult));
+      if (!check.testCompileResult.isSuccessful()) {
+        check.result = SubmissionCheckResult.compilationErrorsOnTestFiles(check.dir, check.compileResult, check.testCompileResult);
+      }
+    });
+  }
+
+  private PendingCheck testStage(PendingCheck check) {
+    return runStage("Test run", check, () -> {
+      // The tests run in a separate JVM, so only now the compiled classes need to be on disk, outside the submission
+      List<TestRunner.TestRunResult> testResults;
+      try (Workspace workspace = Workspace.create(settings.getWorkspaceRoot(), check.dir)) {
+        check.timings.measure(PhaseTimings.Phase.WORKSPACE, () -> {
+          check.compileResult.getCompiledClasses().merge(check.testCompileResult.getCompiledClasses()).writeTo(workspace.getClassesDir());
+          return null;
+        });
+
+        testResults = testRunner.runTests(workspace.getClasspath(), getFileNamesOnly(testClasses));
+      }
+      addTestRunTimings(check.timings, testResults);
+
+      check.result = SubmissionCheckResult.allSuccessful(check.dir, check.compileResult, check.testCompileResult, testResults);
+    });
+  }
+
+  /**
+   * Runs a stage of checking the submission, unless an earlier stage already has its result. A stage that fails only
+   * fails this submission: its result records the error together with whatever the earlier stages found.
+   */
+  private PendingCheck runStage(String stage, PendingCheck check, Runnable action) {
+    try {
+      check.timings.measure(PhaseTimings.Phase.TOTAL, () -> {
+        action.run();
+        return null;
+      });
+    } catch (RuntimeException e) {
+      System.out.println(stage + " of \'" + check.dir + "\' failed, reason: " + e.getMessage());
+      check.result = SubmissionCheckResult.checkFailed(check.dir, check.compileResult, check.testCompileResult, stage + " failed: " + e);
+    }
+
+    return check;
+  }
+
+  private SubmissionCheckResult finish(PendingCheck check) {
+    if (resultCache != null && check.cacheKey != null && !check.fromCache) {
+      resultCache.store(check.cacheKey, check.result);
+    }
+
+    return check.result.withTimings(check.timings);
+  }
+
+  private void addTestRunTimings(PhaseTimings timings, List<TestRunner.TestRunResult> testResults) {
+    for (TestRunner.TestRunResult testResult : testResults) {
+      long wallNanos = testResult.getWallNanos();
+      long executionNanos = Math.min(Math.max(testResult.getReportedTimeNanos(), 0), wallNanos);
+
+      timings.add(PhaseTimings.Phase.TEST_RUN, wallNanos, testResult.getCpuNanos());
+      timings.add(PhaseTimings.Phase.TEST_STARTUP, wallNanos - executionNanos, -1);
+      timings.add(PhaseTimings.Phase.TEST_EXECUTION, executionNanos, -1);
+      // The CPU time of the test JVM is not spent on the checking thread, so it is added to the total separately
+      timings.add(PhaseTimings.Phase.TOTAL, 0, testResult.getCpuNanos());
+    }
+  }
+
+  private Compiler.CompileResult compileTests(Path dir, List<Path> testFiles, Compiler.CompileResult compileResult) {
+    if (settings.isCompileTestsOnce()) {
+      PrecompiledTests precompiled = precompiledTests.get();
+
+      if (precompiled != null) {
+        String linkProblem = precompiled.findLinkProblem(compileResult.getCompiledClasses());
+        if (linkProblem == null) {
+          return Compiler.CompileResult.precompiled(precompiled.getTestClasses());
+        }
+
+        System.out.println("Compiling tests for \'" + dir + "\', precompiled tests do not link: " + linkProblem);
+      }
+    }
+
+    Compiler.CompileResult testCompileResult = compiler.compileInMemory(dir, compileResult.getCompiledClasses(), testFiles);
+
+    // The first submission the tests compile against becomes the reference for all other submissions
+    if (settings.isCompileTestsOnce() && testCompileResult.isSuccessful() && precompiledTests.get() == null) {
+      try {
+        precompiledTests.compareAndSet(null, new PrecompiledTests(compileResult.getCompiledClasses(), testCompileResult.getCompiledClasses()));
+      } catch (IllegalArgumentException e) {
+        System.out.println("Unable to reuse tests compiled for \'" + dir + "\', reason: " + e.getMessage());
+      }
+    }
+
+    return testCompileResult;
   }
 
   private List<Path> resolveJavaClassPaths(Path dir, List<String> javaClasses) {
     List<Path> classPaths = new ArrayList<>();
-    javaClasses.forEach(jc -> classPaths.add(dir.resolve(Paths.get(jc))));
+    // Resolved by name, the submission can be on another file system than the default one (see SubmissionArchive)
+    javaClasses.forEach(jc -> classPaths.add(dir.resolve(jc)));
 
     return classPaths;
   }
@@ -90,39 +599,150 @@ public class Checker {
   }
 
   public static void main(String[] args) {
+    Invocation invocation = parseArgs(args, System.out::println);
+    if (invocation == null) {
+      printUsage();
+      System.exit(-1);
+    }
+
+    invocation.run(new Compiler(invocation.getJunitLib()), result -> { });
+  }
+
+  /**
+   * Validates the command line arguments and turns them into the settings to check a batch with.
+   *
+   * @param problems receives a message for every problem with the arguments
+   * @return the batch to check, or null if the arguments have problems
+   */
+  static Invocation parseArgs(String[] args, Consumer<String> problems) {
     boolean error = false;
 
     if (args.length < 11) {
-      System.out.println("Incorrect number of arguments");
+      problems.accept("Incorrect number of arguments");
       error = true;
     }
 
-    String baseDir = getValue(args, "-basedir");
-    String junit38xLib = getValue(args, "-junit38xlib");
-    String outputDir = getValue(args, "-outputdir");
-    String csvFileName = getValue(args, "-csvname");
-
-    List<String> javaClasses = getValues(args, "-jc");
-    List<String> testClassesList = getValues(args, "-tc");
-
-    if (baseDir == null || toDir(baseDir) == null) {
-      System.out.println("Base dir (-basedir) not supplied or not an (existing) directory");
+    String baseDir = Arguments.getValue(args, "-basedir");
+    String junit38xLib = Arguments.getValue(args, "-junit38xlib");
+    String outputDir = Arguments.getValue(args, "-outputdir");
+    String csvFileName = Arguments.getValue(args, "-csvname");
+    String threadsValue = Arguments.getValue(args, "-threads");
+    String testThreadsValue = Arguments.getValue(args, "-testthreads");
+    String order = Arguments.getValue(args, "-order");
+    String testCompilation = Arguments.getValue(args, "-testcompilation");
+    String testRun = Arguments.getValue(args, "-testrun");
+    String workersValue = Arguments.getValue(args, "-workers");
+    String outputCapValue = Arguments.getValue(args, "-outputcap");
+    String cache = Arguments.getValue(args, "-cache");
+    String json = Arguments.getValue(args, "-json");
+    String watch = Arguments.getValue(args, "-watch");
+    String timeoutValue = Arguments.getValue(args, "-timeout");
+    String wallTimeoutValue = Arguments.getValue(args, "-walltimeout");
+    String reference = Arguments.getValue(args, "-reference");
+    String heapValue = Arguments.getValue(args, "-heap");
+    String stackValue = Arguments.getValue(args, "-stack");
+    String cpusValue = Arguments.getValue(args, "-cpus");
+    String maxThreadsValue = Arguments.getValue(args, "-maxthreads");
+    String workspace = Arguments.getValue(args, "-workspace");
+    String shard = Arguments.getValue(args, "-shard");
+    String jit = Arguments.getValue(args, "-jit");
+    String similarity = Arguments.getValue(args, "-similarity");
+    String dedupOutput = Arguments.getValue(args, "-dedupoutput");
+    String adaptive = Arguments.getValue(args, "-adaptive");
+
+    List<String> javaClasses = Arguments.getValues(args, "-jc");
+    List<String> testClassesList = Arguments.getValues(args, "-tc");
+
+    if (baseDir == null || (toDir(baseDir) == null && toArchive(baseDir) == null)) {
+      problems.accept("Base dir (-basedir) not supplied or not an (existing) directory or zip file");
+      error = true;
+    } else if ("on".equals(watch) && toArchive(baseDir) != null) {
+      problems.accept("Watch mode (-watch) needs a base dir (-basedir), changes in a zip file cannot be watched");
       error = true;
     } else if (junit38xLib == null || toFile(junit38xLib) == null) {
-      System.out.println("JUnit 3.8.x lib path (-junit38xlib) is not supplied or not an existing file");
+      problems.accept("JUnit 3.8.x lib path (-junit38xlib) is not supplied or not an existing file");
       error = true;
     } else if (outputDir == null || toDir(outputDir) == null) {
-      System.out.println("Output dir (-outputdir) not supplied or not an (existing) directory");
+      problems.accept("Output dir (-outputdir) not supplied or not an (existing) directory");
+      error = true;
     } else if (csvFileName == null) {
-      System.out.println("CSV file name (-csvname) not supplied");
+      problems.accept("CSV file name (-csvname) not supplied");
+      error = true;
+    } else if (threadsValue != null && toPositiveInt(threadsValue) == null) {
+      problems.accept("Number of threads (-threads) is not a positive number");
+      error = true;
+    } else if (testThreadsValue != null && toPositiveInt(testThreadsValue) == null) {
+      problems.accept("Number of test threads (-testthreads) is not a positive number");
+      error = true;
+    } else if (order != null && !"name".equals(order) && !"recent".equals(order)) {
+      problems.accept("Order (-order) must be either 'name' or 'recent'");
+      error = true;
+    } else if (testCompilation != null && !"persubmission".equals(testCompilation) && !"perbatch".equals(testCompilation)) {
+      problems.accept("Test compilation (-testcompilation) must be either 'persubmission' or 'perbatch'");
+      error = true;
+    } else if (testRun != null && toTestRunMode(testRun) == null) {
+      problems.accept("Test run mode (-testrun) must be one of 'fork', 'batch' or 'pool'");
+      error = true;
+    } else if (workersValue != null && toPositiveInt(workersValue) == null) {
+      problems.accept("Number of test workers (-workers) is not a positive number");
+      error = true;
+    } else if (outputCapValue != null && toPositiveInt(outputCapValue) == null) {
+      problems.accept("Output cap (-outputcap) is not a positive number");
+      error = true;
+    } else if (cache != null && !"on".equals(cache) && !"off".equals(cache)) {
+      problems.accept("Result cache (-cache) must be either 'on' or 'off'");
+      error = true;
+    } else if (json != null && !"on".equals(json) && !"off".equals(json)) {
+      problems.accept("JSON results (-json) must be either 'on' or 'off'");
+      error = true;
+    } else if (watch != null && !"on".equals(watch) && !"off".equals(watch)) {
+      problems.accept("Watch mode (-watch) must be either 'on' or 'off'");
+      error = true;
+    } else if (timeoutValue != null && toPositiveInt(timeoutValue) == null) {
+      problems.accept("Test timeout (-timeout) is not a positive number");
+      error = true;
+    } else if (wallTimeoutValue != null && toPositiveInt(wallTimeoutValue) == null) {
+      problems.accept("Test wall clock timeout (-walltimeout) is not a positive number");
+      error = true;
+    } else if (reference != null && toDir(reference) == null) {
+      problems.accept("Reference solution (-reference) is not an (existing) directory");
+      error = true;
+    } else if (heapValue != null && (toPositiveInt(heapValue) == null || toPositiveInt(heapValue) < 16)) {
+      problems.accept("Heap of a test JVM (-heap) must be at least 16 (MB)");
+      error = true;
+    } else if (stackValue != null && (toPositiveInt(stackValue) == null || toPositiveInt(stackValue) < 256)) {
+      problems.accept("Stack of a test thread (-stack) must be at least 256 (KB)");
+      error = true;
+    } else if (cpusValue != null && toPositiveInt(cpusValue) == null) {
+      problems.accept("Number of processors of a test JVM (-cpus) is not a positive number");
+      error = true;
+    } else if (maxThreadsValue != null && toPositiveInt(maxThreadsValue) == null) {
+      problems.accept("Number of threads of a test JVM (-maxthreads) is not a positive number");
+      error = true;
+    } else if (workspace != null && toDir(workspace) == null) {
+      problems.accept("Workspace dir (-workspace) is not an (existing) directory");
+      error = true;
+    } else if (shard != null && Shard.parse(shard) == null) {
+      problems.accept("Shard (-shard) must be i/N with 1 <= i <= N, e.g. 2/4");
+      error = true;
+    } else if (jit != null && !"full".equals(jit) && !"quick".equals(jit)) {
+      problems.accept("JIT of the test JVMs (-jit) must be either 'full' or 'quick'");
+      error = true;
+    } else if (similarity != null && !"on".equals(similarity) && !"off".equals(similarity)) {
+      problems.accept("Similarity report (-similarity) must be either 'on' or 'off'");
+      error = true;
+    } else if (dedupOutput != null && !"on".equals(dedupOutput) && !"off".equals(dedupOutput)) {
+      problems.accept("Deduplicated output (-dedupoutput) must be either 'on' or 'off'");
+      error = true;
+    } else if (adaptive != null && !"on".equals(adaptive) && !"off".equals(adaptive)) {
+      problems.accept("Adaptive concurrency (-adaptive) must be either 'on' or 'off'");
+      error = true;
     }
 
     if (error) {
-      printUsage();
-      System.exit(-1);
+      return null;
     }
 
-    Path base = toDir(baseDir);
     Path output = toDir(outputDir);
     Path junitLib = toFile(junit38xLib);
 
@@ -131,37 +751,50 @@ public class Checker {
       Path testClass = toFile(tc);
 
       if (testClass == null) {
-        System.out.println("Test class " + tc + " is not a correct path or the file does not exist");
-        printUsage();
-        System.exit(-1);
+        problems.accept("Test class " + tc + " is not a correct path or the file does not exist");
+        return null;
       } else {
         testClasses.add(testClass);
       }
     }
 
-    Checker checker = new Checker(junitLib, base, javaClasses, testClasses);
-    checker.checkAll(output, csvFileName);
-  }
-
-  private static String getValue(String[] args, String key) {
-    for (int i = 0; i < args.length-1; i+=2) {
-      if (key.equals(args[i])) {
-        return args[i+1];
-      }
-    }
-
-    return null;
-  }
+    int threads = threadsValue != null ? toPositiveInt(threadsValue) : Runtime.getRuntime().availableProcessors();
+    int testThreads = testThreadsValue != null ? toPositiveInt(testThreadsValue) : threads;
 
-  private static List<String> getValues(String[] args, String key) {
-    List<String> values = new ArrayList<>();
-    for (int i = 0; i < args.length-1; i+=2) {
-      if (key.equals(args[i])) {
-        values.add(args[i+1]);
-      }
+    TestTimeouts timeouts = TestTimeouts.defaults()
+            .withDefaultCpuMillis(timeoutValue != null ? toPositiveInt(timeoutValue) * 1000L : TestTimeouts.DEFAULT_CPU_MILLIS);
+    if (wallTimeoutValue != null) {
+      timeouts = timeouts.withWallMillis(toPositiveInt(wallTimeoutValue) * 1000L);
     }
 
-    return values;
+    TestRunSettings testRunSettings = TestRunSettings.defaults()
+            .withMode(testRun != null ? toTestRunMode(testRun) : TestRunner.TestRunMode.FORK)
+            .withWorkers(workersValue != null ? toPositiveInt(workersValue) : testThreads)
+            .withOutputCap(outputCapValue != null ? toPositiveInt(outputCapValue) : TestRunSettings.DEFAULT_OUTPUT_CAP)
+            .withTimeouts(timeouts)
+            .withResourceLimits(ResourceLimits.defaults()
+                    .withHeapMegabytes(heapValue != null ? toPositiveInt(heapValue) : ResourceLimits.DEFAULT_HEAP_MEGABYTES)
+                    .withStackKilobytes(stackValue != null ? toPositiveInt(stackValue) : ResourceLimits.DEFAULT_STACK_KILOBYTES)
+                    .withProcessors(cpusValue != null ? toPositiveInt(cpusValue) : ResourceLimits.DEFAULT_PROCESSORS)
+                    .withThreads(maxThreadsValue != null ? toPositiveInt(maxThreadsValue) : ResourceLimits.DEFAULT_THREADS))
+            .withQuickStart("quick".equals(jit));
+
+    CheckerSettings settings = CheckerSettings.defaults()
+            .withThreads(threads)
+            .withTestThreads(testThreads)
+            .withOrder("recent".equals(order) ? CheckerSettings.SubmissionOrder.RECENT : CheckerSettings.SubmissionOrder.NAME)
+            .withCompileTestsOnce("perbatch".equals(testCompilation))
+            .withResultCache("on".equals(cache))
+            .withJsonResults("on".equals(json))
+            .withTestRunSettings(testRunSettings)
+            .withReferenceSolution(reference != null ? toDir(reference) : null)
+            .withWorkspaceRoot(workspace != null ? toDir(workspace) : null)
+            .withShard(shard != null ? Shard.parse(shard) : Shard.all())
+            .withSimilarityReport("on".equals(similarity))
+            .withDedupOutput("on".equals(dedupOutput))
+            .withAdaptiveConcurrency("on".equals(adaptive));
+
+    return new Invocation(junitLib, baseDir, output, csvFileName, javaClasses, testClasses, settings, "on".equals(watch));
   }
 
   private static Path toFile(String file) {
@@ -190,9 +823,155 @@ public class Checker {
     }
   }
 
+  private static Path toArchive(String file) {
+    Path path = toFile(file);
+    return path != null && SubmissionArchive.isArchive(path) ? path : null;
+  }
+
+  private static Integer toPositiveInt(String value) {
+    try {
+      int i = Integer.parseInt(value);
+      return i > 0 ? i : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  static TestRunner.TestRunMode toTestRunMode(String value) {
+    for (TestRunner.TestRunMode mode : TestRunner.TestRunMode.values()) {
+      if (mode.name().equalsIgnoreCase(value)) {
+        return mode;
+      }
+    }
+
+    return null;
+  }
+
   private static void printUsage() {
-    System.out.println("Usage: -basedir <base directory of java classes to compile and test> -junit38xlib <path to junit 3.8.x lib> -outputdir <output dir to save csv> <java classes> <test class paths>");
+    System.out.println("Usage: -basedir <base directory or zip file of java classes to compile and test> -junit38xlib <path to junit 3.8.x lib> -outputdir <output dir to save csv> -csvname <name of csv file> [-threads <n>] [-testthreads <n>] [-order <name|recent>] [-testcompilation <persubmission|perbatch>] [-testrun <fork|batch|pool>] [-workers <n>] [-outputcap <bytes>] [-cache <on|off>] [-json <on|off>] [-watch <on|off>] [-timeout <seconds>] [-walltimeout <seconds>] [-reference <dir>] [-heap <MB>] [-stack <KB>] [-cpus <n>] [-maxthreads <n>] [-workspace <dir>] [-jit <full|quick>] [-shard <i/N>] [-similarity <on|off>] [-dedupoutput <on|off>] [-adaptive <on|off>] <java classes> <test class paths>");
     System.out.println("  where <java classes> is one or more -jc <name of java class> and <test class path> is zero or more -tc <path of test class>");
+    System.out.println("  -basedir can be a zip file, e.g. as exported by the LMS, of which every top-level folder is a submission; it is read");
+    System.out.println("    without extracting it, only the files a test JVM needs besides the sources are copied to its workspace");
+    System.out.println("  -threads is the number of submissions compiled concurrently (default: number of available processors)");
+    System.out.println("  -testthreads is the number of submissions of which the tests run concurrently, next to the compiling ones (default: -threads)");
+    System.out.println("  -adaptive on makes -threads and -testthreads the most submissions compiled and tested at the same time, how many");
+    System.out.println("    are follows the load, available memory and size of the test JVMs, logged next to the csv (default: off)");
+    System.out.println("  -order recent checks submissions without a cached result first, then the most recently modified ones, name checks");
+    System.out.println("    them by path; the csv rows are saved as the checks finish and sorted by path at the end, the JSON Lines rows stay");
+    System.out.println("    in the order they finished (default: name)");
+    System.out.println("  -testcompilation perbatch compiles the tests once and reuses them for every submission they link against (default: persubmission)");
+    System.out.println("  -testrun batch runs all test classes of a submission in one new JVM, pool runs them in -workers long-lived JVMs");
+    System.out.println("    (default: fork, a new JVM per test class; default workers: -testthreads)");
+    System.out.println("  -outputcap is the maximum number of bytes kept of the (error) output of a test class (default: " + TestRunSettings.DEFAULT_OUTPUT_CAP + ")");
+    System.out.println("  -timeout is the CPU time a test class may use (default: " + TestTimeouts.DEFAULT_CPU_MILLIS / 1000 + ")");
+    System.out.println("  -walltimeout is the wall clock time after which a test class is stopped, e.g. when it waits forever (default: "
+            + TestTimeouts.WALL_FACTOR + " times its CPU time budget, so a test that gets little CPU on a busy machine is not stopped early)");
+    System.out.println("  -reference is a solution passing all tests, the CPU time it needs per test class replaces -timeout (" + TestTimeouts.CALIBRATION_FACTOR
+            + " times as much plus " + TestTimeouts.CALIBRATION_MARGIN_MILLIS + " ms)");
+    System.out.println("  -heap, -stack, -cpus and -maxthreads limit every test JVM, a test class exceeding the heap or thread limit gets outcome");
+    System.out.println("    MEMORY_EXCEEDED or THREADS_EXCEEDED (default: " + ResourceLimits.defaults() + ")");
+    System.out.println("  -workspace is where the class files of a submission are written while its tests run, nothing is written to the");
+    System.out.println("    submission directories (default: " + Workspace.defaultRoot() + ")");
+    System.out.println("  -jit quick only uses the C1 compiler in test JVMs that live for one submission, they start faster but long running");
+    System.out.println("    tests get slower, calibrate with -reference when using it (default: full)");
+    System.out.println("  -shard checks only part i of N of the submissions, by a hash of their directory name, and also saves the results as");
+    System.out.println("    JSON Lines; combine the shards with ShardMerger (default: 1/1)");
+    System.out.println("  -similarity on also saves the most similar pairs of submissions, by fingerprints of their sources that ignore names,");
+    System.out.println("    literals and layout, next to the csv; in watch mode and with -shard only what was checked is compared (default: off)");
+    System.out.println("  -cache on reuses the results of earlier runs for unchanged submissions, stored next to the csv (default: off)");
+    System.out.println("  -dedupoutput on replaces an output in the csv that an earlier submission already had, apart from its path and the");
+    System.out.println("    time JUnit reports, by a reference to that submission; the summary lists the most shared outputs (default: off)");
+    System.out.println("  -json on also saves the full results as JSON Lines, one line per submission, next to the csv (default: off)");
+    System.out.println("  -watch on keeps running after checking all submissions and checks every submission again once it changed and then");
+    System.out.println("    did not change for " + WATCH_DEBOUNCE_MILLIS / 1000 + " seconds, replacing the csv with the updated results (default: off)");
     System.out.println("  Example: -basedir ./submissions -junit38xlib lib/junit-3.8.2.jar -jc ClassOne.java -jc ClassTwo.java -tc tests/TestClassOne.java -tc tests/TestClassTwo.java");
   }
+
+  /**
+   * A batch to check as given on the command line, see {@link #parseArgs}.
+   */
+  static class Invocation {
+    private final Path junitLib;
+    private final String baseDir;
+    private final Path outputDir;
+    private final String csvFileName;
+    private final List<String> javaClasses;
+    private final List<Path> testClasses;
+    private final CheckerSettings settings;
+    private final boolean watch;
+
+    private Invocation(Path junitLib, String baseDir, Path outputDir, String csvFileName, List<String> javaClasses, List<Path> testClasses,
+                       CheckerSettings settings, boolean watch) {
+      this.junitLib = junitLib;
+      this.baseDir = baseDir;
+      this.outputDir = outputDir;
+      this.csvFileName = csvFileName;
+      this.javaClasses = javaClasses;
+      this.testClasses = testClasses;
+      this.settings = settings;
+      this.watch = watch;
+    }
+
+    /**
+     * @param compiler compiler for the JUnit lib of this batch, which can be shared with other batches
+     * @param observer receives every result as soon as it is available
+     */
+    void run(Compiler compiler, Consumer<SubmissionCheckResult> observer) {
+      SubmissionArchive archive = toArchive(baseDir) != null ? SubmissionArchive.open(toArchive(baseDir)) : null;
+      Path base = archive != null ? archive.getRoot() : toDir(baseDir);
+
+      try (Checker checker = new Checker(compiler, junitLib, base, javaClasses, testClasses, settings)) {
+        if (watch) {
+          checker.watch(outputDir, csvFileName);
+        } else {
+          checker.checkAll(outputDir, csvFileName, observer);
+        }
+      } finally {
+        if (archive != null) {
+          archive.close();
+        }
+      }
+    }
+
+    Path getJunitLib() {
+      return junitLib;
+    }
+
+    Path getOutputDir() {
+      return outputDir;
+    }
+
+    String getCsvFileName() {
+      return csvFileName;
+    }
+
+    /**
+     * @return the directory workspaces are created in, or {@code null} for the system temporary directory
+     */
+    Path getWorkspaceRoot() {
+      return settings.getWorkspaceRoot();
+    }
+
+    boolean isWatch() {
+      return watch;
+    }
+  }
+
+  /**
+   * A submission on its way through the stages of {@link #checkDirs}, handed from one stage to the next.
+   */
+  private static class PendingCheck {
+    private final Path dir;
+    private final PhaseTimings timings = new PhaseTimings();
+    private String cacheKey;
+    private boolean fromCache;
+    private Compiler.CompileResult compileResult;
+    private Compiler.CompileResult testCompileResult;
+    /** Set by the stage that finished the check */
+    private SubmissionCheckResult result;
+
+    private PendingCheck(Path dir) {
+      this.dir = dir;
+    }
+  }
 }
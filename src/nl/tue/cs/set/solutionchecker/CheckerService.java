@@ -0,0 +1,404 @@
+package nl.tue.cs.set.solutionchecker;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the checker running and checks batches sent to it over HTTP on the loopback interface, so an autograder that
+ * checks many batches does not pay for starting a JVM and warming up javac every time. The compiler, with its opened
+ * JUnit lib and JDK modules, is kept per JUnit lib and the JIT compiled code of the checker stays.
+ *
+ * <ul>
+ *   <li>{@code POST /jobs?priority=<n>} queues a batch. The body holds the arguments of {@link Checker}, one per line,
+ *   e.g. "-basedir" and "/data/assignment1" on two lines; relative paths are relative to the directory the service
+ *   runs in. Batches with the highest priority are checked first (default 0), batches with the same priority in the
+ *   order they were sent. The response streams the result of every submission as soon as it is checked, as a line of
+ *   JSON like those of {@link SubmissionResultJsonWriter}, and ends when the batch is done; if checking the batch
+ *   failed the last line is {@code {"error": "..."}}. The csv and other files are saved as when running the checker
+ *   from the command line.</li>
+ *   <li>{@code GET /jobs} lists the batch being checked and the queued ones, one per line.</li>
+ * </ul>
+ * One batch is checked at a time, each with the threads its arguments ask for. Watch mode is not available.
+ *
+ * <p>A batch runs the code of its submissions, so every request must hold the token of the service in an
+ * {@code Authorization: Bearer <token>} header. The token is read from a file only its owner can read, which is created
+ * with a random token if it does not exist, so only users that can read that file can use the service. The output
+ * directory and workspace of a batch must be inside the output root of the service.
+ */
+public class CheckerService implements AutoCloseable {
+  public static final int DEFAULT_PORT = 8421;
+  public static final String DEFAULT_TOKEN_FILE = "checker-service.token";
+  private static final int TOKEN_BYTES = 32;
+  private static final Set<PosixFilePermission> OWNER_ONLY = EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+
+  private final HttpServer server;
+  private final byte[] token;
+  private final Path outputRoot;
+  private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>(11,
+          Comparator.comparingInt((Job job) -> job.priority).reversed().thenComparingLong(job -> job.id));
+  private final AtomicLong jobIds = new AtomicLong();
+  private final Map<Path, Compiler> compilers = new HashMap<>();
+  private final Thread runner;
+  private volatile Job running;
+
+  /**
+   * @param tokenFile file holding the token clients must send, created if it does not exist
+   * @param outputRoot directory the batches must save their results and create their workspaces in
+   */
+  public CheckerService(int port, Path tokenFile, Path outputRoot) {
+    this.token = readOrCreateToken(tokenFile).getBytes(StandardCharsets.UTF_8);
+    try {
+      this.outputRoot = outputRoot.toRealPath();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to use output root \'" + outputRoot + "\', reason: " + e.getMessage(), e);
+    }
+
+    try {
+      server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to listen on port " + port + ", reason: " + e.getMessage(), e);
+    }
+    // Every client waits for its batch to be done, so every client needs a thread of its own
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/jobs", this::handle);
+
+    runner = new Thread(this::runJobs, "checker-service");
+  }
+
+  public void start() {
+    runner.start();
+    server.start();
+    System.out.println("Checker service listening on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/jobs"
+            + ", saving results in \'" + outputRoot + "\'");
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    runner.interrupt();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!isAuthorized(exchange)) {
+        respond(exchange, 401, "Missing or wrong token, send it as \'Authorization: Bearer <token>\'\n");
+      } else if ("POST".equals(exchange.getRequestMethod())) {
+        submit(exchange);
+      } else if ("GET".equals(exchange.getRequestMethod())) {
+        respond(exchange, 200, list());
+      } else {
+        respond(exchange, 405, "Only GET and POST are supported\n");
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void submit(HttpExchange exchange) throws IOException {
+    Integer priority = toPriority(exchange.getRequestURI());
+    if (priority == null) {
+      respond(exchange, 400, "Priority must be a number\n");
+      return;
+    }
+
+    List<String> args = new ArrayList<>();
+    for (String line : readBody(exchange.getRequestBody()).split("\r?\n")) {
+      if (!line.trim().isEmpty()) {
+        args.add(line.trim());
+      }
+    }
+
+    StringBuilder problems = new StringBuilder();
+    Checker.Invocation invocation = Checker.parseArgs(args.toArray(new String[0]), problem -> problems.append(problem).append('\n'));
+    if (invocation != null && invocation.isWatch()) {
+      problems.append("Watch mode (-watch) is not available in the service\n");
+      invocation = null;
+    }
+    if (invocation != null && !isInOutputRoot(invocation.getOutputDir().resolve(invocation.getCsvFileName()))) {
+      problems.append("Output directory (-outputdir) and csv file (-csvname) must be inside \'" + outputRoot + "\'\n");
+      invocation = null;
+    }
+    if (invocation != null && invocation.getWorkspaceRoot() != null && !isInOutputRoot(invocation.getWorkspaceRoot())) {
+      problems.append("Workspace (-workspace) must be inside \'" + outputRoot + "\'\n");
+      invocation = null;
+    }
+    if (invocation == null) {
+      respond(exchange, 400, problems.toString());
+      return;
+    }
+
+    Job job = new Job(jobIds.incrementAndGet(), priority, invocation, exchange);
+    exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+    // Length 0 streams the response, a line at a time
+    exchange.sendResponseHeaders(200, 0);
+    queue.add(job);
+    System.out.println("Queued " + job + ", " + queue.size() + " job(s) waiting");
+
+    try {
+      job.done.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause() != null ? e.getCause() : e;
+      job.send(new Json().beginObject().name("error").value(cause.toString()).endObject().toString());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean isAuthorized(HttpExchange exchange) {
+    String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+    if (authorization == null || !authorization.startsWith("Bearer ")) {
+      return false;
+    }
+
+    // Takes as long for every wrong token, so the token cannot be guessed a character at a time
+    return MessageDigest.isEqual(token, authorization.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Whether the path is inside the output root, also after following symbolic links of the directories it is in.
+   */
+  private boolean isInOutputRoot(Path path) {
+    Path absolute = path.toAbsolutePath().normalize();
+    Path parent = absolute.getParent();
+    try {
+      Path real = parent != null ? parent.toRealPath().resolve(absolute.getFileName()) : absolute;
+      return real.startsWith(outputRoot);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private String list() {
+    StringBuilder list = new StringBuilder();
+    Job current = running;
+    if (current != null) {
+      list.append(current).append(" running\n");
+    }
+
+    List<Job> queued = new ArrayList<>(queue);
+    queued.sort(queue.comparator());
+    for (Job job : queued) {
+      list.append(job).append(" queued\n");
+    }
+    return list.toString();
+  }
+
+  private void runJobs() {
+    while (!Thread.currentThread().isInterrupted()) {
+      Job job;
+      try {
+        job = queue.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      running = job;
+      System.out.println("Checking " + job);
+      try {
+        Compiler compiler = compilers.computeIfAbsent(job.invocation.getJunitLib().toAbsolutePath().normalize(), Compiler::new);
+        job.invocation.run(compiler, result -> job.send(SubmissionResultJsonWriter.toJson(result)));
+        job.done.complete(null);
+      } catch (Throwable e) {
+        // Errors too, e.g. running out of memory: the client must get an answer and the next jobs must still run
+        System.out.println("Checking " + job + " failed, reason: " + e);
+        job.done.completeExceptionally(e);
+      } finally {
+        running = null;
+      }
+    }
+  }
+
+  /**
+   * Reads the token from the file, or creates the file with a random token when it does not exist. A file others can
+   * read is refused, as anyone able to read the token can run code as the user of the service.
+   */
+  private static String readOrCreateToken(Path tokenFile) {
+    boolean posix = Files.getFileAttributeView(tokenFile.toAbsolutePath().getParent(), PosixFileAttributeView.class) != null;
+    try {
+      byte[] random = new byte[TOKEN_BYTES];
+      new SecureRandom().nextBytes(random);
+      StringBuilder created = new StringBuilder();
+      for (byte b : random) {
+        created.append(String.format("%02x", b));
+      }
+
+      if (posix) {
+        Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+      } else {
+        Files.createFile(tokenFile);
+      }
+      Files.write(tokenFile, created.toString().getBytes(StandardCharsets.UTF_8));
+      System.out.println("Created token file \'" + tokenFile + "\'");
+      return created.toString();
+    } catch (FileAlreadyExistsException e) {
+      // Use the token that is already there
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to create token file \'" + tokenFile + "\', reason: " + e.getMessage(), e);
+    }
+
+    try {
+      if (posix && !OWNER_ONLY.containsAll(Files.getPosixFilePermissions(tokenFile))) {
+        throw new IllegalStateException("Token file \'" + tokenFile + "\' must only be readable and writable by its owner (chmod 600)");
+      }
+
+      String read = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8).trim();
+      if (read.isEmpty()) {
+        throw new IllegalStateException("Token file \'" + tokenFile + "\' is empty");
+      }
+      return read;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read token file \'" + tokenFile + "\', reason: " + e.getMessage(), e);
+    }
+  }
+
+  private static Integer toPriority(URI uri) {
+    String query = uri.getRawQuery();
+    if (query == null) {
+      return 0;
+    }
+
+    for (String parameter : query.split("&")) {
+      if (parameter.startsWith("priority=")) {
+        try {
+          return Integer.parseInt(parameter.substring("priority=".length()));
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      }
+    }
+    return 0;
+  }
+
+  private static String readBody(InputStream in) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      body.write(buffer, 0, read);
+    }
+    return new String(body.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  public static void main(String[] args) {
+    String portValue = Arguments.getValue(args, "-port");
+    Integer port = portValue != null ? toPort(portValue) : Integer.valueOf(DEFAULT_PORT);
+    String tokenFile = Arguments.getValue(args, "-tokenfile");
+    String outputRoot = Arguments.getValue(args, "-outputroot");
+
+    boolean error = false;
+    if (port == null) {
+      System.out.println("Port (-port) must be a number from 1 to 65535");
+      error = true;
+    } else if (outputRoot != null && !Files.isDirectory(Paths.get(outputRoot))) {
+      System.out.println("Output root (-outputroot) must be an existing directory");
+      error = true;
+    }
+
+    if (error) {
+      printUsage();
+      System.exit(-1);
+    }
+
+    // Runs until the JVM is stopped
+    new CheckerService(port, Paths.get(tokenFile != null ? tokenFile : DEFAULT_TOKEN_FILE), Paths.get(outputRoot != null ? outputRoot : ".")).start();
+  }
+
+  private static Integer toPort(String value) {
+    try {
+      int port = Integer.parseInt(value);
+      return port > 0 && port <= 65535 ? port : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static void printUsage() {
+    System.out.println("Usage: [-port <port>] [-tokenfile <file>] [-outputroot <dir>]");
+    System.out.println("  -port is the port on the loopback interface to accept batches on (default: " + DEFAULT_PORT + ")");
+    System.out.println("  -tokenfile is the file with the token clients must send, only its owner may read it; it is created with a random");
+    System.out.println("    token if it does not exist (default: " + DEFAULT_TOKEN_FILE + ")");
+    System.out.println("  -outputroot is the directory the output directories and workspaces of all batches must be in (default: the");
+    System.out.println("    current directory)");
+    System.out.println("  Example: curl -H \"Authorization: Bearer $(cat " + DEFAULT_TOKEN_FILE + ")\" --data-binary @batch.txt 'http://127.0.0.1:"
+            + DEFAULT_PORT + "/jobs?priority=1'");
+    System.out.println("    where batch.txt holds the arguments of the checker, one per line");
+  }
+
+  private static class Job {
+    private final long id;
+    private final int priority;
+    private final Checker.Invocation invocation;
+    private final HttpExchange exchange;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private boolean clientGone;
+
+    private Job(long id, int priority, Checker.Invocation invocation, HttpExchange exchange) {
+      this.id = id;
+      this.priority = priority;
+      this.invocation = invocation;
+      this.exchange = exchange;
+    }
+
+    /**
+     * Sends a line to the client. A client that went away does not stop the batch, its results are still saved.
+     */
+    private synchronized void send(String line) {
+      if (clientGone) {
+        return;
+      }
+
+      try {
+        OutputStream out = exchange.getResponseBody();
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+      } catch (IOException e) {
+        System.out.println("Unable to send results of " + this + ", reason: " + e.getMessage());
+        clientGone = true;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "job " + id + " (priority " + priority + ") \'" + invocation.getOutputDir().resolve(invocation.getCsvFileName()) + "\'";
+    }
+  }
+}
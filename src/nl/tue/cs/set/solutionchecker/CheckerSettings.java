@@ -0,0 +1,225 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.nio.file.Path;
+
+/**
+ * How the {@link Checker} checks a batch of submissions. Instances are immutable, the {@code with..} methods return a
+ * copy with one setting changed.
+ */
+public class CheckerSettings {
+  private final int threads;
+  private final int testThreads;
+  private final SubmissionOrder order;
+  private final boolean compileTestsOnce;
+  private final boolean resultCache;
+  private final boolean jsonResults;
+  private final TestRunSettings testRunSettings;
+  private final Path referenceSolution;
+  private final Path workspaceRoot;
+  private final Shard shard;
+  private final boolean similarityReport;
+  private final boolean dedupOutput;
+  private final boolean adaptiveConcurrency;
+
+  private CheckerSettings(int threads, int testThreads, SubmissionOrder order, boolean compileTestsOnce, boolean resultCache, boolean jsonResults,
+                          TestRunSettings testRunSettings, Path referenceSolution, Path workspaceRoot, Shard shard, boolean similarityReport,
+                          boolean dedupOutput, boolean adaptiveConcurrency) {
+    this.threads = threads;
+    this.testThreads = testThreads;
+    this.order = order;
+    this.compileTestsOnce = compileTestsOnce;
+    this.resultCache = resultCache;
+    this.jsonResults = jsonResults;
+    this.testRunSettings = testRunSettings;
+    this.referenceSolution = referenceSolution;
+    this.workspaceRoot = workspaceRoot;
+    this.shard = shard;
+    this.similarityReport = similarityReport;
+    this.dedupOutput = dedupOutput;
+    this.adaptiveConcurrency = adaptiveConcurrency;
+  }
+
+  /**
+   * One submission compiled and one tested at a time, in order of name, tests compiled per submission, no result cache,
+   * only the csv file, the default {@link TestRunSettings}, no reference solution, workspaces on tmpfs when available,
+   * all submissions in one shard, no similarity report, every output written in full and a fixed number of threads.
+   */
+  public static CheckerSettings defaults() {
+    return new CheckerSettings(1, 1, SubmissionOrder.NAME, false, false, false, TestRunSettings.defaults(), null, null, Shard.all(), false, false,
+            false);
+  }
+
+  /**
+   * @param threads number of submissions compiled concurrently
+   */
+  public CheckerSettings withThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads must be at least 1");
+    }
+
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  /**
+   * @param testThreads number of submissions of which the tests run concurrently, while other submissions compile
+   */
+  public CheckerSettings withTestThreads(int testThreads) {
+    if (testThreads < 1) {
+      throw new IllegalArgumentException("Number of test threads must be at least 1");
+    }
+
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  /**
+   * @param order order in which the submissions are checked, which is also the order of the results
+   */
+  public CheckerSettings withOrder(SubmissionOrder order) {
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  /**
+   * @param compileTestsOnce whether to reuse the tests compiled for one submission for all submissions they link against
+   */
+  public CheckerSettings withCompileTestsOnce(boolean compileTestsOnce) {
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  /**
+   * @param resultCache whether to reuse the results of an earlier run for submissions that did not change
+   */
+  public CheckerSettings withResultCache(boolean resultCache) {
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  /**
+   * @param jsonResults whether to also save the full results as JSON Lines, see {@link SubmissionResultJsonWriter}
+   */
+  public CheckerSettings withJsonResults(boolean jsonResults) {
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  public CheckerSettings withTestRunSettings(TestRunSettings testRunSettings) {
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  /**
+   * @param referenceSolution directory with a solution that passes all tests, used to calibrate the time budgets of the
+   *                          test classes before checking the submissions, or null to use the configured budgets
+   */
+  public CheckerSettings withReferenceSolution(Path referenceSolution) {
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  /**
+   * @param workspaceRoot directory in which the class files of the submissions are written while their tests run, or
+   *                      null for tmpfs when available and the temporary directory otherwise
+   */
+  public CheckerSettings withWorkspaceRoot(Path workspaceRoot) {
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  /**
+   * @param shard the part of the submissions to check, the full results are then always saved as JSON Lines as well so
+   *              they can be merged with {@link ShardMerger}
+   */
+  public CheckerSettings withShard(Shard shard) {
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  /**
+   * @param similarityReport whether to also report the submissions with the most similar sources, see
+   *                         {@link SimilarityIndex}
+   */
+  public CheckerSettings withSimilarityReport(boolean similarityReport) {
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  /**
+   * @param dedupOutput whether an output in the csv file that an earlier submission already had refers to that
+   *                    submission instead, see {@link OutputStore}
+   */
+  public CheckerSettings withDedupOutput(boolean dedupOutput) {
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  /**
+   * @param adaptiveConcurrency whether the number of submissions compiled and tested at the same time follows the load
+   *                            of the machine, up to the threads and test threads, see {@link ConcurrencyController}
+   */
+  public CheckerSettings withAdaptiveConcurrency(boolean adaptiveConcurrency) {
+    return new CheckerSettings(threads, testThreads, order, compileTestsOnce, resultCache, jsonResults, testRunSettings, referenceSolution, workspaceRoot, shard,
+            similarityReport, dedupOutput, adaptiveConcurrency);
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public int getTestThreads() {
+    return testThreads;
+  }
+
+  public SubmissionOrder getOrder() {
+    return order;
+  }
+
+  public boolean isCompileTestsOnce() {
+    return compileTestsOnce;
+  }
+
+  public boolean isResultCache() {
+    return resultCache;
+  }
+
+  public boolean isJsonResults() {
+    return jsonResults;
+  }
+
+  public TestRunSettings getTestRunSettings() {
+    return testRunSettings;
+  }
+
+  public Path getReferenceSolution() {
+    return referenceSolution;
+  }
+
+  public Path getWorkspaceRoot() {
+    return workspaceRoot;
+  }
+
+  public Shard getShard() {
+    return shard;
+  }
+
+  public boolean isSimilarityReport() {
+    return similarityReport;
+  }
+
+  public boolean isDedupOutput() {
+    return dedupOutput;
+  }
+
+  public boolean isAdaptiveConcurrency() {
+    return adaptiveConcurrency;
+  }
+
+  public enum SubmissionOrder {
+    /** By path, so the order of the results does not depend on when the submissions changed */
+    NAME,
+    /** Submissions without a cached result first, then the most recently modified ones, ties by path; the csv file is still sorted by path once all are checked */
+    RECENT
+  }
+}
@@ -0,0 +1,329 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Minimal reader of the parts of a class file that are needed to decide whether byte code compiled against one
+ * submission links against the classes of another: the declared fields and methods and the members it references.
+ */
+class ClassFileInfo {
+  static final int ACC_PUBLIC = 0x0001;
+  static final int ACC_PRIVATE = 0x0002;
+  static final int ACC_PROTECTED = 0x0004;
+  static final int ACC_STATIC = 0x0008;
+  static final int ACC_FINAL = 0x0010;
+  static final int ACC_SYNTHETIC = 0x1000;
+  static final int ACC_INTERFACE = 0x0200;
+  static final int ACC_ABSTRACT = 0x0400;
+  static final int ACC_ENUM = 0x4000;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_LONG = 5;
+  private static final int CONSTANT_DOUBLE = 6;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+  private static final int CONSTANT_METHOD_HANDLE = 15;
+  private static final int CONSTANT_METHOD_TYPE = 16;
+  private static final int CONSTANT_DYNAMIC = 17;
+  private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+  private static final int CONSTANT_MODULE = 19;
+  private static final int CONSTANT_PACKAGE = 20;
+
+  private final String name;
+  private final String superName;
+  private final List<String> interfaces;
+  private final int accessFlags;
+  private final String signature;
+  private final List<Member> fields;
+  private final List<Member> methods;
+  private final Set<String> referencedClasses;
+  private final Set<MemberRef> referencedMembers;
+
+  private ClassFileInfo(String name, String superName, List<String> interfaces, int accessFlags, String signature, List<Member> fields,
+                        List<Member> methods, Set<String> referencedClasses, Set<MemberRef> referencedMembers) {
+    this.name = name;
+    this.superName = superName;
+    this.interfaces = interfaces;
+    this.accessFlags = accessFlags;
+    this.signature = signature;
+    this.fields = fields;
+    this.methods = methods;
+    this.referencedClasses = referencedClasses;
+    this.referencedMembers = referencedMembers;
+  }
+
+  static ClassFileInfo parse(byte[] byteCode) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(byteCode))) {
+      if (in.readInt() != 0xCAFEBABE) {
+        throw new IllegalArgumentException("Not a class file");
+      }
+      in.readUnsignedShort();
+      in.readUnsignedShort();
+
+      int poolSize = in.readUnsignedShort();
+      int[] tags = new int[poolSize];
+      Object[] values = new Object[poolSize];
+      int[][] refs = new int[poolSize][];
+
+      for (int i = 1; i < poolSize; i++) {
+        int tag = in.readUnsignedByte();
+        tags[i] = tag;
+        switch (tag) {
+          case CONSTANT_UTF8: values[i] = in.readUTF(); break;
+          case CONSTANT_INTEGER: values[i] = in.readInt(); break;
+          case CONSTANT_FLOAT: values[i] = in.readFloat(); break;
+          case CONSTANT_LONG: values[i] = in.readLong(); i++; break;
+          case CONSTANT_DOUBLE: values[i] = in.readDouble(); i++; break;
+          case CONSTANT_CLASS:
+          case CONSTANT_STRING:
+          case CONSTANT_METHOD_TYPE:
+          case CONSTANT_MODULE:
+          case CONSTANT_PACKAGE: refs[i] = new int[] {in.readUnsignedShort()}; break;
+          case CONSTANT_FIELDREF:
+          case CONSTANT_METHODREF:
+          case CONSTANT_INTERFACE_METHODREF:
+          case CONSTANT_NAME_AND_TYPE:
+          case CONSTANT_DYNAMIC:
+          case CONSTANT_INVOKE_DYNAMIC: refs[i] = new int[] {in.readUnsignedShort(), in.readUnsignedShort()}; break;
+          case CONSTANT_METHOD_HANDLE: refs[i] = new int[] {in.readUnsignedByte(), in.readUnsignedShort()}; break;
+          default: throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+        }
+      }
+
+      int accessFlags = in.readUnsignedShort();
+      String name = className(values, refs, in.readUnsignedShort());
+      int superIndex = in.readUnsignedShort();
+      String superName = superIndex == 0 ? null : className(values, refs, superIndex);
+      int interfaceCount = in.readUnsignedShort();
+      List<String> interfaces = new ArrayList<>(interfaceCount);
+      for (int i = 0; i < interfaceCount; i++) {
+        interfaces.add(className(values, refs, in.readUnsignedShort()));
+      }
+
+      List<Member> fields = readMembers(in, tags, values, refs);
+      List<Member> methods = readMembers(in, tags, values, refs);
+      String signature = readAttributes(in, tags, values, refs, null);
+
+      Set<String> referencedClasses = new LinkedHashSet<>();
+      Set<MemberRef> referencedMembers = new LinkedHashSet<>();
+      for (int i = 1; i < poolSize; i++) {
+        if (tags[i] == CONSTANT_CLASS) {
+          referencedClasses.add(elementClassName(className(values, refs, i)));
+        } else if (tags[i] == CONSTANT_FIELDREF || tags[i] == CONSTANT_METHODREF || tags[i] == CONSTANT_INTERFACE_METHODREF) {
+          int[] nameAndType = refs[refs[i][1]];
+          referencedMembers.add(new MemberRef(elementClassName(className(values, refs, refs[i][0])),
+                  (String) values[nameAndType[0]], (String) values[nameAndType[1]], tags[i] == CONSTANT_FIELDREF));
+        }
+      }
+
+      return new ClassFileInfo(name, superName, interfaces, accessFlags, signature, fields, methods, referencedClasses, referencedMembers);
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalArgumentException("Unable to read class file, reason: " + e.getMessage(), e);
+    }
+  }
+
+  private static List<Member> readMembers(DataInputStream in, int[] tags, Object[] values, int[][] refs) throws IOException {
+    int count = in.readUnsignedShort();
+    List<Member> members = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i++) {
+      int flags = in.readUnsignedShort();
+      String name = (String) values[in.readUnsignedShort()];
+      String descriptor = (String) values[in.readUnsignedShort()];
+      Member member = new Member(name, descriptor, flags);
+      member.signature = readAttributes(in, tags, values, refs, member);
+      members.add(member);
+    }
+
+    return members;
+  }
+
+  /**
+   * Reads an attribute table, storing the constant value and thrown exceptions in {@code member} (if given) and
+   * returning the generic signature (or null).
+   */
+  private static String readAttributes(DataInputStream in, int[] tags, Object[] values, int[][] refs, Member member) throws IOException {
+    String signature = null;
+    int count = in.readUnsignedShort();
+
+    for (int i = 0; i < count; i++) {
+      String attribute = (String) values[in.readUnsignedShort()];
+      int length = in.readInt();
+
+      if ("Signature".equals(attribute)) {
+        signature = (String) values[in.readUnsignedShort()];
+      } else if ("ConstantValue".equals(attribute) && member != null) {
+        int index = in.readUnsignedShort();
+        Object value = tags[index] == CONSTANT_STRING ? values[refs[index][0]] : values[index];
+        member.constantValue = tags[index] + ":" + value;
+      } else if ("Exceptions".equals(attribute) && member != null) {
+        int exceptions = in.readUnsignedShort();
+        List<String> thrown = new ArrayList<>(exceptions);
+        for (int j = 0; j < exceptions; j++) {
+          thrown.add(className(values, refs, in.readUnsignedShort()));
+        }
+        member.exceptions = thrown;
+      } else {
+        in.skipNBytes(length);
+      }
+    }
+
+    return signature;
+  }
+
+  private static String className(Object[] values, int[][] refs, int classIndex) {
+    return (String) values[refs[classIndex][0]];
+  }
+
+  private static String elementClassName(String name) {
+    if (!name.startsWith("[")) {
+      return name;
+    }
+
+    String element = name.substring(name.lastIndexOf('[') + 1);
+    return element.startsWith("L") ? element.substring(1, element.length() - 1) : element;
+  }
+
+  /**
+   * Internal name of the class, e.g. {@code nl/example/Foo}.
+   */
+  String getName() {
+    return name;
+  }
+
+  String getSuperName() {
+    return superName;
+  }
+
+  List<String> getInterfaces() {
+    return Collections.unmodifiableList(interfaces);
+  }
+
+  int getAccessFlags() {
+    return accessFlags;
+  }
+
+  String getSignature() {
+    return signature;
+  }
+
+  List<Member> getFields() {
+    return Collections.unmodifiableList(fields);
+  }
+
+  List<Member> getMethods() {
+    return Collections.unmodifiableList(methods);
+  }
+
+  Set<String> getReferencedClasses() {
+    return Collections.unmodifiableSet(referencedClasses);
+  }
+
+  Set<MemberRef> getReferencedMembers() {
+    return Collections.unmodifiableSet(referencedMembers);
+  }
+
+  static class Member {
+    private final String name;
+    private final String descriptor;
+    private final int accessFlags;
+    private String signature;
+    private String constantValue;
+    private List<String> exceptions = Collections.emptyList();
+
+    private Member(String name, String descriptor, int accessFlags) {
+      this.name = name;
+      this.descriptor = descriptor;
+      this.accessFlags = accessFlags;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    String getDescriptor() {
+      return descriptor;
+    }
+
+    int getAccessFlags() {
+      return accessFlags;
+    }
+
+    String getSignature() {
+      return signature;
+    }
+
+    String getConstantValue() {
+      return constantValue;
+    }
+
+    List<String> getExceptions() {
+      return exceptions;
+    }
+  }
+
+  static class MemberRef {
+    private final String owner;
+    private final String name;
+    private final String descriptor;
+    private final boolean field;
+
+    MemberRef(String owner, String name, String descriptor, boolean field) {
+      this.owner = owner;
+      this.name = name;
+      this.descriptor = descriptor;
+      this.field = field;
+    }
+
+    String getOwner() {
+      return owner;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    String getDescriptor() {
+      return descriptor;
+    }
+
+    boolean isField() {
+      return field;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof MemberRef)) {
+        return false;
+      }
+      MemberRef other = (MemberRef) o;
+      return field == other.field && owner.equals(other.owner) && name.equals(other.name) && descriptor.equals(other.descriptor);
+    }
+
+    @Override
+    public int hashCode() {
+      return ((owner.hashCode() * 31 + name.hashCode()) * 31 + descriptor.hashCode()) * 31 + (field ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+      return owner + "." + name + (field ? ":" : "") + descriptor;
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Byte code of compiled classes, keyed by binary class name (e.g. {@code nl.example.Foo$Bar}).
+ */
+public class CompiledClasses {
+  private final Map<String, byte[]> classes;
+
+  public CompiledClasses() {
+    this.classes = new LinkedHashMap<>();
+  }
+
+  private CompiledClasses(Map<String, byte[]> classes) {
+    this.classes = classes;
+  }
+
+  public static CompiledClasses empty() {
+    return new CompiledClasses(Collections.emptyMap());
+  }
+
+  public void put(String binaryName, byte[] byteCode) {
+    classes.put(binaryName, byteCode);
+  }
+
+  public byte[] get(String binaryName) {
+    return classes.get(binaryName);
+  }
+
+  public Set<String> getNames() {
+    return Collections.unmodifiableSet(classes.keySet());
+  }
+
+  public boolean isEmpty() {
+    return classes.isEmpty();
+  }
+
+  public int size() {
+    return classes.size();
+  }
+
+  public CompiledClasses merge(CompiledClasses other) {
+    CompiledClasses merged = new CompiledClasses();
+    merged.classes.putAll(classes);
+    merged.classes.putAll(other.classes);
+    return merged;
+  }
+
+  /**
+   * Writes all classes as .class files below {@code dir}, laid out in directories per package so that the
+   * directory can be used as a classpath entry.
+   */
+  public void writeTo(Path dir) {
+    for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+      Path classFile = dir.resolve(entry.getKey().replace('.', '/') + ".class");
+      try {
+        if (classFile.getParent() != null) {
+          Files.createDirectories(classFile.getParent());
+        }
+        Files.write(classFile, entry.getValue());
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to write class \'" + entry.getKey() + "\' to \'" + dir + "\'", e);
+      }
+    }
+  }
+}
@@ -1,14 +1,41 @@
 package nl.tue.cs.set.solutionchecker;
 
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskListener;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 public class Compiler {
+  /** Encoding of the sources, fixed so the outcome does not depend on the platform the checker runs on */
+  static final String SOURCE_ENCODING = "UTF-8";
+  private static final List<String> OPTIONS = Arrays.asList("-encoding", SOURCE_ENCODING);
+
   private final Path junitLibPath;
+  private final JavaCompiler javaCompiler;
+
+  // File managers are not thread safe, so every compilation borrows one from the pool and returns it afterwards.
+  // Reusing them keeps the JUnit lib and the JDK modules opened and indexed across compilations, also across the
+  // thread pools of batches checked one after another by the same compiler (see CheckerService).
+  private final Deque<PooledFileManager> fileManagers = new ConcurrentLinkedDeque<>();
 
   public Compiler(Path junitLibPath) {
     if (!Files.exists(junitLibPath)) {
@@ -16,9 +43,98 @@ public class Compiler {
     }
 
     this.junitLibPath = junitLibPath;
+    this.javaCompiler = ToolProvider.getSystemJavaCompiler();
+    if (javaCompiler == null) {
+      throw new IllegalStateException("No system java compiler available, make sure the checker runs on a JDK");
+    }
   }
 
+  /**
+   * Compiles the given classes, writing the .class files next to the sources.
+   */
   public CompileResult compile(Path classpath, List<Path> javaClasses) {
+    validate(classpath, javaClasses);
+
+    DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+    PooledFileManager pooled = borrowFileManager(collector);
+    try {
+      StandardJavaFileManager fileManager = pooled.fileManager;
+      setClasspath(fileManager, classpath);
+      return run(fileManager, fileManager, javaClasses, collector, null, null);
+    } finally {
+      returnFileManager(pooled);
+    }
+  }
+
+  /**
+   * Compiles the given classes keeping the resulting byte code in memory (see {@link CompileResult#getCompiledClasses()}).
+   * The {@code dependencies} are resolved as if they were on the classpath, next to {@code classpath} and the JUnit lib.
+   */
+  public CompileResult compileInMemory(Path classpath, CompiledClasses dependencies, List<Path> javaClasses) {
+    return compileInMemory(classpath, dependencies, javaClasses, null);
+  }
+
+  /**
+   * Like {@link #compileInMemory(Path, CompiledClasses, List)}, letting {@code listener} follow the compilation, e.g.
+   * to look at the syntax trees right after they are parsed.
+   */
+  public CompileResult compileInMemory(Path classpath, CompiledClasses dependencies, List<Path> javaClasses, TaskListener listener) {
+    validate(classpath, javaClasses);
+
+    DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+    PooledFileManager pooled = borrowFileManager(collector);
+    try {
+      StandardJavaFileManager fileManager = pooled.fileManager;
+      setClasspath(fileManager, classpath);
+      InMemoryFileManager inMemoryFileManager = new InMemoryFileManager(fileManager, dependencies);
+      return run(fileManager, inMemoryFileManager, javaClasses, collector, inMemoryFileManager, listener);
+    } finally {
+      returnFileManager(pooled);
+    }
+  }
+
+  /**
+   * Only parses the given classes, without compiling them. Syntax errors are ignored, the trees then hold what could
+   * be parsed.
+   */
+  public List<? extends CompilationUnitTree> parse(List<Path> javaClasses) {
+    DiagnosticCollector<JavaFileObject> ignored = new DiagnosticCollector<>();
+    PooledFileManager pooled = borrowFileManager(ignored);
+    try {
+      StandardJavaFileManager fileManager = pooled.fileManager;
+      JavacTask task = (JavacTask) javaCompiler.getTask(new StringWriter(), fileManager, ignored, OPTIONS, null,
+              fileManager.getJavaFileObjectsFromPaths(javaClasses));
+
+      List<CompilationUnitTree> units = new ArrayList<>();
+      task.parse().forEach(units::add);
+      return units;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to parse " + javaClasses + ", reason: " + e.getMessage(), e);
+    } finally {
+      returnFileManager(pooled);
+    }
+  }
+
+  /**
+   * @param diagnostics receives what the file manager reports while it is borrowed, e.g. a source that cannot be
+   *                    decoded, which does not reach the diagnostic listener of the compilation task otherwise
+   * @return the file manager used most recently that is not in use, or a new one
+   */
+  private PooledFileManager borrowFileManager(DiagnosticListener<? super JavaFileObject> diagnostics) {
+    PooledFileManager pooled = fileManagers.poll();
+    if (pooled == null) {
+      pooled = new PooledFileManager();
+    }
+    pooled.diagnostics = diagnostics;
+    return pooled;
+  }
+
+  private void returnFileManager(PooledFileManager pooled) {
+    pooled.diagnostics = null;
+    fileManagers.push(pooled);
+  }
+
+  private void validate(Path classpath, List<Path> javaClasses) {
     if (!Files.exists(classpath) || !Files.isDirectory(classpath)) {
       throw new IllegalArgumentException("Must provide a classpath");
     }
@@ -26,23 +142,90 @@ public class Compiler {
     if (javaClasses.isEmpty()) {
       throw new IllegalArgumentException("Must provide at least one java class name");
     }
+  }
+
+  private void setClasspath(StandardJavaFileManager fileManager, Path classpath) {
+    try {
+      fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, Arrays.asList(junitLibPath, classpath));
+      // Annotation processors are looked up on the classpath by default, with a class loader that needs files on disk
+      boolean onDisk = classpath.getFileSystem() == FileSystems.getDefault();
+      fileManager.setLocationFromPaths(StandardLocation.ANNOTATION_PROCESSOR_PATH,
+              onDisk ? Arrays.asList(junitLibPath, classpath) : Collections.singletonList(junitLibPath));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to set classpath '" + classpath + "', reason: " + e.getMessage(), e);
+    }
+  }
 
-    ByteArrayOutputStream stdOutput = new ByteArrayOutputStream();
-    ByteArrayOutputStream errOutput = new ByteArrayOutputStream();
+  /**
+   * @param collector collects the diagnostics of the task and of the file manager
+   */
+  private CompileResult run(StandardJavaFileManager fileManager, JavaFileManager taskFileManager, List<Path> javaClasses,
+                            DiagnosticCollector<JavaFileObject> collector, InMemoryFileManager inMemoryFileManager, TaskListener listener) {
+    StringWriter stdOutput = new StringWriter();
 
-    String[] compilerCommand = new String[2 + javaClasses.size()];
-    compilerCommand[0] = "-cp";
-    compilerCommand[1] = junitLibPath.toString() + File.pathSeparator + classpath.toString();
-    for (int i = 0; i < javaClasses.size(); i++) {
-      compilerCommand[i + 2] = javaClasses.get(i).toString();
+    Iterable<? extends JavaFileObject> sources = fileManager.getJavaFileObjectsFromPaths(javaClasses);
+    JavaCompiler.CompilationTask task = javaCompiler.getTask(stdOutput, taskFileManager, collector, OPTIONS, null, sources);
+    if (listener != null) {
+      ((JavacTask) task).addTaskListener(listener);
     }
+    boolean successful = task.call();
 
-    int compileResult = ToolProvider.getSystemJavaCompiler().run(null, stdOutput, errOutput, compilerCommand);
+    // An error of the file manager does not fail the task, javac on the command line does fail on it
+    List<CompileDiagnostic> diagnostics = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+      diagnostics.add(CompileDiagnostic.of(diagnostic));
+      successful &= diagnostic.getKind() != Diagnostic.Kind.ERROR;
+    }
 
-    if (compileResult == 0) {
-      return CompileResult.successful(stdOutput.toString());
+    if (successful) {
+      CompiledClasses compiledClasses = inMemoryFileManager != null ? inMemoryFileManager.getOutput() : CompiledClasses.empty();
+      return CompileResult.successful(stdOutput.toString(), diagnostics, compiledClasses);
     } else {
-      return CompileResult.unsuccessful(errOutput.toString());
+      return CompileResult.unsuccessful(formatDiagnostics(diagnostics), diagnostics);
+    }
+  }
+
+  /**
+   * Formats the diagnostics the same way javac reports them on the command line.
+   */
+  private static String formatDiagnostics(List<CompileDiagnostic> diagnostics) {
+    StringBuilder formatted = new StringBuilder();
+    int errors = 0;
+    int warnings = 0;
+
+    for (CompileDiagnostic diagnostic : diagnostics) {
+      formatted.append(diagnostic.getFormatted()).append("\n");
+
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errors++;
+      } else if (diagnostic.getKind() == Diagnostic.Kind.WARNING || diagnostic.getKind() == Diagnostic.Kind.MANDATORY_WARNING) {
+        warnings++;
+      }
+    }
+
+    if (errors > 0) {
+      formatted.append(errors).append(errors == 1 ? " error\n" : " errors\n");
+    }
+    if (warnings > 0) {
+      formatted.append(warnings).append(warnings == 1 ? " warning\n" : " warnings\n");
+    }
+
+    return formatted.toString();
+  }
+
+  /**
+   * A pooled file manager, with the listener that forwards what it reports to the compilation it is borrowed for.
+   */
+  private class PooledFileManager implements DiagnosticListener<JavaFileObject> {
+    private final StandardJavaFileManager fileManager = javaCompiler.getStandardFileManager(this, null, null);
+    private volatile DiagnosticListener<? super JavaFileObject> diagnostics;
+
+    @Override
+    public void report(Diagnostic<? extends JavaFileObject> diagnostic) {
+      DiagnosticListener<? super JavaFileObject> target = diagnostics;
+      if (target != null) {
+        target.report(diagnostic);
+      }
     }
   }
 
@@ -50,19 +233,40 @@ public class Compiler {
     private final CompileOutcome outcome;
     private final String output;
     private final String error;
+    private final List<CompileDiagnostic> diagnostics;
+    private final CompiledClasses compiledClasses;
+    private final boolean precompiled;
 
-    private CompileResult(CompileOutcome outcome, String output, String error) {
+    private CompileResult(CompileOutcome outcome, String output, String error, List<CompileDiagnostic> diagnostics, CompiledClasses compiledClasses, boolean precompiled) {
       this.outcome = outcome;
       this.output = output;
       this.error = error;
+      this.diagnostics = diagnostics;
+      this.compiledClasses = compiledClasses;
+      this.precompiled = precompiled;
     }
 
     public static CompileResult successful(String output) {
-      return new CompileResult(CompileOutcome.SUCCESS, output, "");
+      return successful(output, Collections.emptyList(), CompiledClasses.empty());
+    }
+
+    public static CompileResult successful(String output, List<CompileDiagnostic> diagnostics, CompiledClasses compiledClasses) {
+      return new CompileResult(CompileOutcome.SUCCESS, output, "", diagnostics, compiledClasses, false);
+    }
+
+    /**
+     * Result for classes that were not compiled for this submission, but reused from an earlier compilation.
+     */
+    public static CompileResult precompiled(CompiledClasses compiledClasses) {
+      return new CompileResult(CompileOutcome.SUCCESS, "", "", Collections.emptyList(), compiledClasses, true);
     }
 
     public static CompileResult unsuccessful(String error) {
-      return new CompileResult(CompileOutcome.ERROR, "", error);
+      return unsuccessful(error, Collections.emptyList());
+    }
+
+    public static CompileResult unsuccessful(String error, List<CompileDiagnostic> diagnostics) {
+      return new CompileResult(CompileOutcome.ERROR, "", error, diagnostics, CompiledClasses.empty(), false);
     }
 
     public CompileOutcome getOutcome() {
@@ -81,16 +285,94 @@ public class Compiler {
       return error;
     }
 
+    public List<CompileDiagnostic> getDiagnostics() {
+      return diagnostics;
+    }
+
+    /**
+     * The byte code produced by {@link Compiler#compileInMemory}, empty when the classes were written to disk.
+     */
+    public CompiledClasses getCompiledClasses() {
+      return compiledClasses;
+    }
+
+    public boolean isPrecompiled() {
+      return precompiled;
+    }
+
     @Override
     public String toString() {
       return "CompileResult{" +
               "outcome=" + outcome +
               ", output='" + output + '\'' +
               ", error='" + error + '\'' +
+              ", precompiled=" + precompiled +
               '}';
     }
   }
 
+  /**
+   * Copy of a javac {@link Diagnostic} that does not keep the (source) file objects of the compilation alive.
+   */
+  static class CompileDiagnostic {
+    private final Diagnostic.Kind kind;
+    private final String source;
+    private final long line;
+    private final long column;
+    private final String code;
+    private final String message;
+    private final String formatted;
+
+    CompileDiagnostic(Diagnostic.Kind kind, String source, long line, long column, String code, String message, String formatted) {
+      this.kind = kind;
+      this.source = source;
+      this.line = line;
+      this.column = column;
+      this.code = code;
+      this.message = message;
+      this.formatted = formatted;
+    }
+
+    static CompileDiagnostic of(Diagnostic<? extends JavaFileObject> diagnostic) {
+      String source = diagnostic.getSource() != null ? diagnostic.getSource().getName() : "";
+      return new CompileDiagnostic(diagnostic.getKind(), source, diagnostic.getLineNumber(), diagnostic.getColumnNumber(),
+              diagnostic.getCode(), diagnostic.getMessage(null), diagnostic.toString());
+    }
+
+    public Diagnostic.Kind getKind() {
+      return kind;
+    }
+
+    public String getSource() {
+      return source;
+    }
+
+    public long getLine() {
+      return line;
+    }
+
+    public long getColumn() {
+      return column;
+    }
+
+    public String getCode() {
+      return code;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    public String getFormatted() {
+      return formatted;
+    }
+
+    @Override
+    public String toString() {
+      return formatted;
+    }
+  }
+
   enum CompileOutcome {
     SUCCESS,ERROR;
   }
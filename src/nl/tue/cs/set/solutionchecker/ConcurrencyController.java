@@ -0,0 +1,300 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Adapts the number of submissions compiled and tested at the same time to what the machine can take, between 1 and
+ * the configured number of threads. Both start at half of that and every {@link #INTERVAL_MILLIS} the load, the
+ * available memory and the memory of the test JVMs are sampled:
+ * <ul>
+ *   <li>compiling happens inside the checker and only needs CPU, so it grows while the load is below the number of
+ *   processors and shrinks when the machine is overloaded;</li>
+ *   <li>testing forks JVMs, so it shrinks when the memory available drops below a reserve, or when the machine is
+ *   overloaded, which would make tests exceed their wall clock time budget; it only grows when there is memory for
+ *   another test JVM as large as the ones running.</li>
+ * </ul>
+ * A limit only grows while submissions are waiting for it. It grows by one and is halved when the machine is overloaded
+ * or low on memory, so an overshoot is undone at once. The load is the number of runnable threads from
+ * {@code /proc/loadavg}, smoothed over {@link #LOAD_SMOOTHING_MILLIS}; where that is not available the 1 minute load
+ * average is used. The load follows a change with a delay, so after a change a limit stays as it is for at least that
+ * delay ({@link #COOLDOWN_MILLIS}, or {@link #LOAD_AVERAGE_COOLDOWN_MILLIS} for the load average), unless memory runs
+ * low. Every change is logged, with the samples it is based on.
+ * Samples that are not available on the platform (e.g. without {@code /proc}) are not used.
+ */
+class ConcurrencyController implements AutoCloseable {
+  static final long INTERVAL_MILLIS = 1_000;
+  static final long LOAD_SMOOTHING_MILLIS = 5_000;
+  static final long COOLDOWN_MILLIS = 10_000;
+  /** The 1 minute load average moves about two thirds of the way to a new load in a minute */
+  static final long LOAD_AVERAGE_COOLDOWN_MILLIS = 60_000;
+  private static final double OVERLOADED = 1.25;
+  private static final double UNDERLOADED = 0.9;
+  private static final double MEMORY_RESERVE = 0.1;
+  private static final long JVM_OVERHEAD_KILOBYTES = 64 * 1024;
+
+  private final Limit compileLimit;
+  private final Limit testLimit;
+  private final long testJvmKilobytes;
+  private final Path log;
+  private final int processors = Runtime.getRuntime().availableProcessors();
+  private final ScheduledExecutorService sampler;
+  private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd MMM HH:mm:ss");
+  private final long cooldownNanos;
+
+  private long largestTestJvmKilobytes;
+  private double smoothedRunnable = -1;
+
+  /**
+   * @param log file to which the decisions are appended, next to printing them
+   */
+  ConcurrencyController(int maxCompiles, int maxTests, ResourceLimits resourceLimits, Path log) {
+    this.compileLimit = new Limit(maxCompiles);
+    this.testLimit = new Limit(maxTests);
+    // Until a test JVM can be measured, assume it uses all of its heap
+    this.testJvmKilobytes = resourceLimits.getHeapMegabytes() * 1024L + JVM_OVERHEAD_KILOBYTES;
+    this.log = log;
+    this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(readRunnable() >= 0 ? COOLDOWN_MILLIS : LOAD_AVERAGE_COOLDOWN_MILLIS);
+
+    log("Start with " + compileLimit.get() + " of " + maxCompiles + " compile(s) and " + testLimit.get() + " of " + maxTests + " test run(s)");
+    sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "concurrency-controller");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sampler.scheduleWithFixedDelay(this::adjust, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  Limit getCompileLimit() {
+    return compileLimit;
+  }
+
+  Limit getTestLimit() {
+    return testLimit;
+  }
+
+  @Override
+  public void close() {
+    sampler.shutdownNow();
+  }
+
+  private void adjust() {
+    try {
+      double load = sampleLoad();
+      long[] memory = readMemoryKilobytes();
+      long testJvm = sampleTestJvmKilobytes();
+
+      String samples = String.format("load %.1f on %d processor(s), %s available, test JVMs %s", load, processors,
+              memory != null ? memory[1] / 1024 + " of " + memory[0] / 1024 + " MB" : "unknown MB", testJvm / 1024 + " MB each");
+      boolean overloaded = load >= 0 && load > processors * OVERLOADED;
+      boolean underloaded = load < 0 || load < processors * UNDERLOADED;
+
+      if (overloaded) {
+        compileLimit.halve(false, "overloaded", samples);
+      } else if (underloaded && compileLimit.isWaited()) {
+        compileLimit.grow("processors left", samples);
+      }
+
+      long reserve = memory != null ? (long) (memory[0] * MEMORY_RESERVE) : 0;
+      if (memory != null && memory[1] < reserve) {
+        testLimit.halve(true, "low on memory", samples);
+      } else if (overloaded) {
+        testLimit.halve(false, "overloaded", samples);
+      } else if (underloaded && testLimit.isWaited() && (memory == null || memory[1] - reserve > testJvm)) {
+        testLimit.grow("memory and processors left", samples);
+      }
+    } catch (RuntimeException e) {
+      // A failing sample must not stop the controller, the limits then stay as they are
+      log("Unable to adjust concurrency, reason: " + e);
+    }
+  }
+
+  /**
+   * @return the number of runnable threads, smoothed, or the 1 minute load average when that is unknown; negative
+   *         when neither is known
+   */
+  private double sampleLoad() {
+    int runnable = readRunnable();
+    if (runnable < 0) {
+      return ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+    }
+
+    double weight = 1 - Math.exp(-(double) INTERVAL_MILLIS / LOAD_SMOOTHING_MILLIS);
+    smoothedRunnable = smoothedRunnable < 0 ? runnable : smoothedRunnable + weight * (runnable - smoothedRunnable);
+    return smoothedRunnable;
+  }
+
+  /**
+   * @return the number of threads running or waiting for a processor right now, from {@code /proc/loadavg}, not
+   *         counting the thread reading it, or -1 if unknown
+   */
+  private static int readRunnable() {
+    try {
+      // e.g. "0.52 0.58 0.59 3/1024 12345", the fourth field is runnable / existing threads
+      String[] fields = new String(Files.readAllBytes(Paths.get("/proc/loadavg")), StandardCharsets.US_ASCII).trim().split("\\s+");
+      return Math.max(0, Integer.parseInt(fields[3].substring(0, fields[3].indexOf('/'))) - 1);
+    } catch (IOException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * @return the total and available memory from {@code /proc/meminfo}, or null if unknown
+   */
+  private static long[] readMemoryKilobytes() {
+    long total = -1;
+    long available = -1;
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc/meminfo"))) {
+        if (line.startsWith("MemTotal:")) {
+          total = parseKilobytes(line);
+        } else if (line.startsWith("MemAvailable:")) {
+          available = parseKilobytes(line);
+        }
+      }
+    } catch (IOException | UncheckedIOException | NumberFormatException e) {
+      return null;
+    }
+    return total > 0 && available >= 0 ? new long[] {total, available} : null;
+  }
+
+  /**
+   * @return the largest resident memory any child JVM had so far, or the estimate when none was measured yet
+   */
+  private long sampleTestJvmKilobytes() {
+    List<ProcessHandle> children = ProcessHandle.current().descendants().collect(Collectors.toList());
+    for (ProcessHandle child : children) {
+      try {
+        for (String line : Files.readAllLines(Paths.get("/proc", String.valueOf(child.pid()), "status"))) {
+          if (line.startsWith("VmRSS:")) {
+            largestTestJvmKilobytes = Math.max(largestTestJvmKilobytes, parseKilobytes(line));
+          }
+        }
+      } catch (IOException | UncheckedIOException | NumberFormatException e) {
+        // The process ended in the meantime, or there is no /proc
+      }
+    }
+    return largestTestJvmKilobytes > 0 ? largestTestJvmKilobytes : testJvmKilobytes;
+  }
+
+  private static long parseKilobytes(String line) {
+    // e.g. "MemAvailable:    1234567 kB"
+    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+  }
+
+  private synchronized void log(String message) {
+    String line = "Concurrency: " + message;
+    System.out.println(line);
+    try {
+      Files.write(log, (LocalDateTime.now().format(formatter) + " " + line + "\n").getBytes(Charset.defaultCharset()),
+              StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      System.out.println("Unable to log to \'" + log + "\', reason: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Number of submissions that may be in one stage at the same time, which can change while they are.
+   */
+  class Limit {
+    private final int max;
+    private int limit;
+    private int active;
+    private int waiting;
+    private long changedAt = System.nanoTime();
+
+    private Limit(int max) {
+      this.max = max;
+      this.limit = Math.max(1, max / 2);
+    }
+
+    /**
+     * Runs the action once fewer than the limit of actions run, waiting until then.
+     */
+    <T> T run(Supplier<T> action) {
+      acquire();
+      try {
+        return action.get();
+      } finally {
+        release();
+      }
+    }
+
+    synchronized int get() {
+      return limit;
+    }
+
+    private synchronized void acquire() {
+      waiting++;
+      try {
+        while (active >= limit) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting to be checked", e);
+      } finally {
+        waiting--;
+      }
+      active++;
+    }
+
+    private synchronized void release() {
+      active--;
+      notifyAll();
+    }
+
+    private synchronized boolean isWaited() {
+      return waiting > 0;
+    }
+
+    private void grow(String reason, String samples) {
+      change(current -> current + 1, false, reason, samples);
+    }
+
+    /**
+     * @param urgent whether to halve the limit even when it was changed less than the cooldown ago
+     */
+    private void halve(boolean urgent, String reason, String samples) {
+      change(current -> current / 2, urgent, reason, samples);
+    }
+
+    private void change(IntUnaryOperator next, boolean urgent, String reason, String samples) {
+      int from;
+      int to;
+      synchronized (this) {
+        long now = System.nanoTime();
+        if (!urgent && now - changedAt < cooldownNanos) {
+          return;
+        }
+        from = limit;
+        to = Math.max(1, Math.min(max, next.applyAsInt(limit)));
+        limit = to;
+        if (from != to) {
+          changedAt = now;
+        }
+        notifyAll();
+      }
+
+      if (from != to) {
+        log((this == compileLimit ? "compiles " : "test runs ") + from + " -> " + to + ", " + reason + " (" + samples + ")");
+      }
+    }
+  }
+}
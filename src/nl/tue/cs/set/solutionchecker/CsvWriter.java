@@ -1,30 +1,74 @@
 package nl.tue.cs.set.solutionchecker;
 
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
-public abstract class CsvWriter {
+/**
+ * Writes csv rows directly to a file, so only the row that is being written is kept in memory. Call {@link #flush()}
+ * after a row to make sure it ends up in the file, even if the checker crashes later on.
+ */
+public abstract class CsvWriter implements Closeable {
   private static final char SEP = ',';
 
-  private final StringBuilder builder;
+  private Writer writer;
 
   DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd MMM HH:mm:ss");
 
-  public CsvWriter() {
-    this.builder = new StringBuilder();
-  }
-
-  public void saveFile(Path outputDir, String csvFileName) {
+  public void openFile(Path outputDir, String csvFileName) {
     if (!Files.exists(outputDir) || !Files.isDirectory(outputDir)) {
       throw new IllegalArgumentException("Output dir \'" + outputDir + "\' does not exist or is not a directory");
     }
+    if (writer != null) {
+      throw new IllegalStateException("Csv file is already opened");
+    }
 
     Path csvFile = outputDir.resolve(csvFileName);
     try {
-      Files.write(csvFile, builder.toString().getBytes());
+      // Unlike Files.newBufferedWriter, this replaces characters the charset cannot encode instead of failing
+      writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(csvFile), Charset.defaultCharset()));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to save csv, reason: " + e.getMessage());
+    }
+  }
+
+  public void flush() {
+    try {
+      writer.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to save csv, reason: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() {
+    if (writer == null) {
+      return;
+    }
+
+    try {
+      writer.close();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to save csv, reason: " + e.getMessage());
+    } finally {
+      writer = null;
+    }
+  }
+
+  private void append(String s) {
+    if (writer == null) {
+      throw new IllegalStateException("Csv file is not opened");
+    }
+
+    try {
+      writer.write(s);
     } catch (IOException e) {
       throw new IllegalStateException("Unable to save csv, reason: " + e.getMessage());
     }
@@ -35,12 +79,12 @@ public abstract class CsvWriter {
   }
 
   protected CsvWriter sep() {
-    builder.append(SEP);
+    append(String.valueOf(SEP));
     return this;
   }
 
   protected CsvWriter nl() {
-    builder.append("\n");
+    append("\n");
     return this;
   }
 
@@ -55,37 +99,37 @@ public abstract class CsvWriter {
   }
 
   protected CsvWriter write(int i) {
-    builder.append(i);
+    append(String.valueOf(i));
     sep();
     return this;
   }
 
   protected CsvWriter writeLast(int i) {
-    builder.append(i);
+    append(String.valueOf(i));
     nl();
     return this;
   }
 
   protected CsvWriter write(String s) {
-    builder.append(quote(s));
+    append(quote(s));
     sep();
     return this;
   }
 
   protected CsvWriter writeLast(String s) {
-    builder.append(quote(s));
+    append(quote(s));
     nl();
     return this;
   }
 
   protected CsvWriter write(LocalDateTime d) {
-    builder.append(quote(d.format(formatter)));
+    append(quote(d.format(formatter)));
     sep();
     return this;
   }
 
   protected CsvWriter writeLast(LocalDateTime d) {
-    builder.append(quote(d.format(formatter)));
+    append(quote(d.format(formatter)));
     nl();
     return this;
   }
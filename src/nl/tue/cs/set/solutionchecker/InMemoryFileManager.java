@@ -0,0 +1,127 @@
+package nl.tue.cs.set.solutionchecker;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * File manager that keeps the compiled byte code in memory instead of writing .class files next to the sources.
+ * Classes compiled earlier (e.g. the classes of a submission when compiling its tests) can be supplied as
+ * dependencies, they are then resolved from memory as if they were on the classpath.
+ */
+class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+  private final CompiledClasses dependencies;
+  private final CompiledClasses output;
+  private final long created;
+
+  InMemoryFileManager(StandardJavaFileManager fileManager, CompiledClasses dependencies) {
+    super(fileManager);
+    this.dependencies = dependencies;
+    this.output = new CompiledClasses();
+    this.created = System.currentTimeMillis();
+  }
+
+  CompiledClasses getOutput() {
+    return output;
+  }
+
+  @Override
+  public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+    if (location == StandardLocation.CLASS_OUTPUT && kind == JavaFileObject.Kind.CLASS) {
+      return new MemoryClassFile(className, null);
+    }
+
+    return super.getJavaFileForOutput(location, className, kind, sibling);
+  }
+
+  @Override
+  public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+    Iterable<JavaFileObject> listed = super.list(location, packageName, kinds, recurse);
+    if (location != StandardLocation.CLASS_PATH || !kinds.contains(JavaFileObject.Kind.CLASS) || dependencies.isEmpty()) {
+      return listed;
+    }
+
+    List<JavaFileObject> combined = new ArrayList<>();
+    for (String name : dependencies.getNames()) {
+      if (isInPackage(name, packageName, recurse)) {
+        combined.add(new MemoryClassFile(name, dependencies.get(name)));
+      }
+    }
+    listed.forEach(combined::add);
+
+    return combined;
+  }
+
+  @Override
+  public String inferBinaryName(Location location, JavaFileObject file) {
+    if (file instanceof MemoryClassFile) {
+      return ((MemoryClassFile) file).binaryName;
+    }
+
+    return super.inferBinaryName(location, file);
+  }
+
+  @Override
+  public boolean isSameFile(FileObject a, FileObject b) {
+    if (a instanceof MemoryClassFile || b instanceof MemoryClassFile) {
+      return a.toUri().equals(b.toUri());
+    }
+
+    return super.isSameFile(a, b);
+  }
+
+  private static boolean isInPackage(String binaryName, String packageName, boolean recurse) {
+    int lastDot = binaryName.lastIndexOf('.');
+    String classPackage = lastDot < 0 ? "" : binaryName.substring(0, lastDot);
+
+    if (recurse) {
+      return packageName.isEmpty() || classPackage.equals(packageName) || classPackage.startsWith(packageName + ".");
+    } else {
+      return classPackage.equals(packageName);
+    }
+  }
+
+  private class MemoryClassFile extends SimpleJavaFileObject {
+    private final String binaryName;
+    private final byte[] byteCode;
+
+    MemoryClassFile(String binaryName, byte[] byteCode) {
+      super(URI.create("mem:///" + binaryName.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+      this.binaryName = binaryName;
+      this.byteCode = byteCode;
+    }
+
+    @Override
+    public InputStream openInputStream() {
+      return new ByteArrayInputStream(byteCode);
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+      return new ByteArrayOutputStream() {
+        @Override
+        public void close() {
+          output.put(binaryName, toByteArray());
+        }
+      };
+    }
+
+    @Override
+    public long getLastModified() {
+      // Newer than any source on the classpath, so javac prefers these classes over recompiling the sources
+      return created;
+    }
+  }
+}
@@ -0,0 +1,299 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the result files: building objects on a single line and parsing them back into maps, lists,
+ * strings, longs, doubles, booleans and nulls. The checker has no dependencies, so it does not use a JSON library.
+ */
+class Json {
+  private final StringBuilder json = new StringBuilder();
+  private boolean first = true;
+
+  Json beginObject() {
+    value();
+    json.append('{');
+    first = true;
+    return this;
+  }
+
+  Json endObject() {
+    json.append('}');
+    first = false;
+    return this;
+  }
+
+  Json beginArray() {
+    value();
+    json.append('[');
+    first = true;
+    return this;
+  }
+
+  Json endArray() {
+    json.append(']');
+    first = false;
+    return this;
+  }
+
+  Json name(String name) {
+    value();
+    quote(name);
+    json.append(':');
+    first = true;
+    return this;
+  }
+
+  Json value(String value) {
+    value();
+    if (value == null) {
+      json.append("null");
+    } else {
+      quote(value);
+    }
+    return this;
+  }
+
+  Json value(long value) {
+    value();
+    json.append(value);
+    return this;
+  }
+
+  Json value(boolean value) {
+    value();
+    json.append(value);
+    return this;
+  }
+
+  Json nullValue() {
+    value();
+    json.append("null");
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return json.toString();
+  }
+
+  private void value() {
+    if (!first) {
+      json.append(',');
+    }
+    first = false;
+  }
+
+  private void quote(String s) {
+    json.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        case '\n':
+          json.append("\\n");
+          break;
+        case '\r':
+          json.append("\\r");
+          break;
+        case '\t':
+          json.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+      }
+    }
+    json.append('"');
+  }
+
+  /**
+   * @throws IllegalArgumentException when the text is not valid JSON
+   */
+  static Object parse(String text) {
+    Parser parser = new Parser(text);
+    Object value = parser.readValue();
+    parser.skipWhitespace();
+    if (parser.position != text.length()) {
+      throw parser.error("Unexpected text after value");
+    }
+    return value;
+  }
+
+  private static class Parser {
+    private final String text;
+    private int position;
+
+    Parser(String text) {
+      this.text = text;
+    }
+
+    Object readValue() {
+      skipWhitespace();
+      if (position >= text.length()) {
+        throw error("Unexpected end");
+      }
+
+      char c = text.charAt(position);
+      if (c == '{') {
+        return readObject();
+      } else if (c == '[') {
+        return readArray();
+      } else if (c == '"') {
+        return readString();
+      } else if (text.startsWith("true", position)) {
+        position += 4;
+        return Boolean.TRUE;
+      } else if (text.startsWith("false", position)) {
+        position += 5;
+        return Boolean.FALSE;
+      } else if (text.startsWith("null", position)) {
+        position += 4;
+        return null;
+      } else {
+        return readNumber();
+      }
+    }
+
+    private Map<String, Object> readObject() {
+      Map<String, Object> object = new LinkedHashMap<>();
+      position++;
+      skipWhitespace();
+      if (peek() == '}') {
+        position++;
+        return object;
+      }
+
+      while (true) {
+        skipWhitespace();
+        String name = readString();
+        skipWhitespace();
+        expect(':');
+        object.put(name, readValue());
+        skipWhitespace();
+        if (peek() == ',') {
+          position++;
+        } else {
+          expect('}');
+          return object;
+        }
+      }
+    }
+
+    private List<Object> readArray() {
+      List<Object> array = new ArrayList<>();
+      position++;
+      skipWhitespace();
+      if (peek() == ']') {
+        position++;
+        return array;
+      }
+
+      while (true) {
+        array.add(readValue());
+        skipWhitespace();
+        if (peek() == ',') {
+          position++;
+        } else {
+          expect(']');
+          return array;
+        }
+      }
+    }
+
+    private String readString() {
+      expect('"');
+      StringBuilder s = new StringBuilder();
+      while (true) {
+        if (position >= text.length()) {
+          throw error("Unterminated string");
+        }
+
+        char c = text.charAt(position++);
+        if (c == '"') {
+          return s.toString();
+        } else if (c != '\\') {
+          s.append(c);
+          continue;
+        }
+
+        char escaped = text.charAt(position++);
+        switch (escaped) {
+          case 'n':
+            s.append('\n');
+            break;
+          case 'r':
+            s.append('\r');
+            break;
+          case 't':
+            s.append('\t');
+            break;
+          case 'b':
+            s.append('\b');
+            break;
+          case 'f':
+            s.append('\f');
+            break;
+          case 'u':
+            s.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+            position += 4;
+            break;
+          default:
+            s.append(escaped);
+        }
+      }
+    }
+
+    private Object readNumber() {
+      int start = position;
+      while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+        position++;
+      }
+
+      String number = text.substring(start, position);
+      try {
+        if (number.contains(".") || number.contains("e") || number.contains("E")) {
+          return Double.parseDouble(number);
+        }
+        return Long.parseLong(number);
+      } catch (NumberFormatException e) {
+        throw error("Invalid value \'" + number + "\'");
+      }
+    }
+
+    void skipWhitespace() {
+      while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+        position++;
+      }
+    }
+
+    private char peek() {
+      if (position >= text.length()) {
+        throw error("Unexpected end");
+      }
+      return text.charAt(position);
+    }
+
+    private void expect(char c) {
+      if (peek() != c) {
+        throw error("Expected \'" + c + "\'");
+      }
+      position++;
+    }
+
+    IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " at position " + position);
+    }
+  }
+}
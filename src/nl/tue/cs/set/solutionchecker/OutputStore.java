@@ -0,0 +1,116 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps track of which (compiler or test) outputs of a batch are the same, so a report can refer to the first
+ * submission with an output instead of repeating it, e.g. when everyone fails the same tricky test. Outputs count as
+ * the same when they only differ in the path of the submission, which javac puts in front of every error, and in the
+ * time JUnit reports. The store is content-addressed: only the SHA-256 of every distinct output is kept, with the
+ * first submission that had it and how many did, not the output itself.
+ */
+public class OutputStore {
+  private static final Pattern TIME = Pattern.compile("(?m)^Time: [0-9.,]+$");
+  private static final int PREVIEW_LENGTH = 100;
+
+  private final Map<ByteBuffer, Entry> entries = new HashMap<>();
+
+  /**
+   * @param kind what the output is, e.g. "Compile error output", only outputs of the same kind are the same
+   * @return the first submission that had the same output, or null if this is the first one (or the output is empty)
+   */
+  public synchronized Path put(Path submission, String kind, String output) {
+    if (output == null || output.trim().isEmpty()) {
+      return null;
+    }
+
+    String normalized = kind + "\n" + TIME.matcher(output.replace(submission.toString(), "")).replaceAll("Time:");
+    ByteBuffer key = ByteBuffer.wrap(newDigest().digest(normalized.getBytes(StandardCharsets.UTF_8)));
+
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      entries.put(key, new Entry(submission, kind, preview(output)));
+      return null;
+    }
+
+    entry.count++;
+    return entry.first;
+  }
+
+  /**
+   * @return the outputs most submissions had, at most {@code shown}, one per line
+   */
+  public synchronized String summary(int shown) {
+    List<Entry> shared = new ArrayList<>();
+    for (Entry entry : entries.values()) {
+      if (entry.count > 1) {
+        shared.add(entry);
+      }
+    }
+    shared.sort(Comparator.comparingInt((Entry e) -> e.count).reversed().thenComparing(e -> e.first));
+
+    StringBuilder summary = new StringBuilder();
+    summary.append(String.format("%d distinct output(s), %d shared by several submissions%n", entries.size(), shared.size()));
+    for (Entry entry : shared.subList(0, Math.min(shown, shared.size()))) {
+      summary.append(String.format("  \'%s\' and %d other(s), %s: %s%n", entry.first, entry.count - 1, entry.kind, entry.preview));
+    }
+    return summary.toString();
+  }
+
+  public void appendSummary(Path file, int shown) {
+    try {
+      Files.write(file, summary(shown).getBytes(Charset.defaultCharset()), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to save output summary, reason: " + e.getMessage());
+    }
+  }
+
+  /**
+   * @return the first line of the output that says something, shortened
+   */
+  private static String preview(String output) {
+    for (String line : output.split("\r?\n")) {
+      String trimmed = line.trim();
+      // Skip the dots and letters textui prints while the tests run
+      if (!trimmed.isEmpty() && !trimmed.matches("[.EF]+")) {
+        return trimmed.length() > PREVIEW_LENGTH ? trimmed.substring(0, PREVIEW_LENGTH) + "..." : trimmed;
+      }
+    }
+    return "";
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  private static class Entry {
+    private final Path first;
+    private final String kind;
+    private final String preview;
+    private int count = 1;
+
+    private Entry(Path first, String kind, String preview) {
+      this.first = first;
+      this.kind = kind;
+      this.preview = preview;
+    }
+  }
+}
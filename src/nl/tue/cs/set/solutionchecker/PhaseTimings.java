@@ -0,0 +1,78 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Wall clock and CPU time spent in each phase of checking a submission. CPU times are -1 when they are unknown.
+ */
+public class PhaseTimings {
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  private final Map<Phase, long[]> timings = new EnumMap<>(Phase.class);
+
+  /**
+   * Runs {@code action} on the current thread and adds its wall clock and CPU time to {@code phase}.
+   */
+  public <T> T measure(Phase phase, Supplier<T> action) {
+    long startWall = System.nanoTime();
+    long startCpu = threadCpuNanos();
+    try {
+      return action.get();
+    } finally {
+      long cpu = startCpu < 0 ? -1 : threadCpuNanos() - startCpu;
+      add(phase, System.nanoTime() - startWall, cpu);
+    }
+  }
+
+  public synchronized void add(Phase phase, long wallNanos, long cpuNanos) {
+    long[] timing = timings.computeIfAbsent(phase, p -> new long[] {0, 0});
+    timing[0] += wallNanos;
+    timing[1] = timing[1] < 0 || cpuNanos < 0 ? -1 : timing[1] + cpuNanos;
+  }
+
+  public synchronized boolean has(Phase phase) {
+    return timings.containsKey(phase);
+  }
+
+  public synchronized long getWallNanos(Phase phase) {
+    long[] timing = timings.get(phase);
+    return timing == null ? 0 : timing[0];
+  }
+
+  public synchronized long getCpuNanos(Phase phase) {
+    long[] timing = timings.get(phase);
+    return timing == null ? -1 : timing[1];
+  }
+
+  private static long threadCpuNanos() {
+    return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+  }
+
+  public enum Phase {
+    /** Writing the compiled classes to the {@link Workspace} */
+    WORKSPACE("Workspace"),
+    COMPILE("Compile"),
+    TEST_COMPILE("Test compile"),
+    /** Running the test JVM(s), the sum of {@link #TEST_STARTUP} and {@link #TEST_EXECUTION}, CPU time of the test JVM(s) */
+    TEST_RUN("Test run"),
+    /** Everything of a test run outside the time JUnit reports for the tests, mainly the JVM startup */
+    TEST_STARTUP("Test JVM startup"),
+    /** The time JUnit reports for running the tests */
+    TEST_EXECUTION("Test execution"),
+    TOTAL("Total");
+
+    private final String label;
+
+    Phase(String label) {
+      this.label = label;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Test classes that are compiled once, against a reference submission, and reused for other submissions.
+ *
+ * Reusing the byte code is only safe when compiling the tests against the other submission would have given the same
+ * byte code. That is checked conservatively on the class files: every class and member of the reference submission
+ * the tests refer to must have exactly the same shape (flags, types, generic signature, thrown exceptions, overloads
+ * and super types) in the other submission, and the compile time constants (which javac inlines in the tests) must
+ * have the same values. Anything else means the tests have to be compiled for that submission.
+ */
+class PrecompiledTests {
+  private static final int CLASS_FLAGS = ClassFileInfo.ACC_PUBLIC | ClassFileInfo.ACC_FINAL | ClassFileInfo.ACC_INTERFACE
+          | ClassFileInfo.ACC_ABSTRACT | ClassFileInfo.ACC_ENUM;
+  private static final int MEMBER_FLAGS = ClassFileInfo.ACC_PUBLIC | ClassFileInfo.ACC_PRIVATE | ClassFileInfo.ACC_PROTECTED
+          | ClassFileInfo.ACC_STATIC | ClassFileInfo.ACC_FINAL | ClassFileInfo.ACC_ABSTRACT;
+
+  private final CompiledClasses testClasses;
+  private final Map<String, String> requiredClasses;
+  private final Map<String, String> requiredMembers;
+  private final Map<String, String> requiredConstants;
+
+  PrecompiledTests(CompiledClasses referenceClasses, CompiledClasses testClasses) {
+    this.testClasses = testClasses;
+
+    Map<String, ClassFileInfo> reference = parse(referenceClasses);
+    Set<String> referencedClasses = new LinkedHashSet<>();
+    Set<ClassFileInfo.MemberRef> referencedMembers = new LinkedHashSet<>();
+    for (String name : testClasses.getNames()) {
+      ClassFileInfo test = ClassFileInfo.parse(testClasses.get(name));
+      referencedClasses.addAll(test.getReferencedClasses());
+      referencedMembers.addAll(test.getReferencedMembers());
+    }
+
+    this.requiredClasses = new LinkedHashMap<>();
+    for (String referencedClass : referencedClasses) {
+      if (reference.containsKey(referencedClass)) {
+        requiredClasses.put(referencedClass, describeClass(reference.get(referencedClass)));
+      }
+    }
+
+    this.requiredMembers = new LinkedHashMap<>();
+    for (ClassFileInfo.MemberRef member : referencedMembers) {
+      if (reference.containsKey(member.getOwner())) {
+        requiredMembers.put(memberKey(member), describeMember(reference, member));
+      }
+    }
+
+    this.requiredConstants = new LinkedHashMap<>();
+    for (ClassFileInfo info : reference.values()) {
+      String constants = describeConstants(info);
+      if (!constants.isEmpty()) {
+        requiredConstants.put(info.getName(), constants);
+      }
+    }
+  }
+
+  CompiledClasses getTestClasses() {
+    return testClasses;
+  }
+
+  /**
+   * @return a description of why the tests do not link against the given classes, or null if they do
+   */
+  String findLinkProblem(CompiledClasses submissionClasses) {
+    Map<String, ClassFileInfo> submission;
+    try {
+      submission = parse(submissionClasses);
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    }
+
+    for (Map.Entry<String, String> required : requiredClasses.entrySet()) {
+      ClassFileInfo info = submission.get(required.getKey());
+      if (info == null) {
+        return "class " + required.getKey() + " is missing";
+      } else if (!required.getValue().equals(describeClass(info))) {
+        return "class " + required.getKey() + " differs";
+      }
+    }
+
+    for (Map.Entry<String, String> required : requiredMembers.entrySet()) {
+      String member = required.getKey();
+      String owner = member.substring(0, member.indexOf(' '));
+      if (!required.getValue().equals(describeMember(submission, owner, member.substring(member.lastIndexOf(' ') + 1), member.contains(" field ")))) {
+        return "member " + member.replace(" field ", ".").replace(" method ", ".") + " differs";
+      }
+    }
+
+    for (Map.Entry<String, String> required : requiredConstants.entrySet()) {
+      ClassFileInfo info = submission.get(required.getKey());
+      if (info != null && !required.getValue().equals(describeConstants(info))) {
+        return "constants of " + required.getKey() + " differ";
+      }
+    }
+
+    return null;
+  }
+
+  private static Map<String, ClassFileInfo> parse(CompiledClasses classes) {
+    Map<String, ClassFileInfo> parsed = new HashMap<>();
+    for (String name : classes.getNames()) {
+      ClassFileInfo info = ClassFileInfo.parse(classes.get(name));
+      parsed.put(info.getName(), info);
+    }
+
+    return parsed;
+  }
+
+  private static String memberKey(ClassFileInfo.MemberRef member) {
+    return member.getOwner() + (member.isField() ? " field " : " method ") + member.getName();
+  }
+
+  private static String describeClass(ClassFileInfo info) {
+    return (info.getAccessFlags() & CLASS_FLAGS) + " " + info.getSuperName() + " " + info.getInterfaces() + " " + info.getSignature();
+  }
+
+  private static String describeMember(Map<String, ClassFileInfo> classes, ClassFileInfo.MemberRef member) {
+    return describeMember(classes, member.getOwner(), member.getName(), member.isField());
+  }
+
+  /**
+   * Describes all fields or methods with the given name that are visible from {@code owner}, including the
+   * overloads, so a different resolution of the member by javac is detected as well.
+   */
+  private static String describeMember(Map<String, ClassFileInfo> classes, String owner, String name, boolean field) {
+    Set<String> described = new TreeSet<>();
+    List<String> toVisit = new ArrayList<>();
+    Set<String> visited = new HashSet<>();
+    toVisit.add(owner);
+
+    while (!toVisit.isEmpty()) {
+      String className = toVisit.remove(toVisit.size() - 1);
+      if (className == null || !visited.add(className)) {
+        continue;
+      }
+
+      ClassFileInfo info = classes.get(className);
+      if (info == null) {
+        // Outside of the submission (e.g. java.lang.Object), these are the same for every submission
+        described.add("extends " + className);
+        continue;
+      }
+
+      for (ClassFileInfo.Member member : field ? info.getFields() : info.getMethods()) {
+        if (member.getName().equals(name) && (member.getAccessFlags() & ClassFileInfo.ACC_SYNTHETIC) == 0) {
+          described.add(member.getDescriptor() + " " + (member.getAccessFlags() & MEMBER_FLAGS) + " " + member.getSignature()
+                  + " " + member.getExceptions() + " " + member.getConstantValue());
+        }
+      }
+
+      toVisit.add(info.getSuperName());
+      toVisit.addAll(info.getInterfaces());
+    }
+
+    return String.join("\n", described);
+  }
+
+  private static String describeConstants(ClassFileInfo info) {
+    Set<String> described = new TreeSet<>();
+    for (ClassFileInfo.Member field : info.getFields()) {
+      if (field.getConstantValue() != null && (field.getAccessFlags() & ClassFileInfo.ACC_PRIVATE) == 0) {
+        described.add(field.getName() + "=" + field.getConstantValue());
+      }
+    }
+
+    return String.join("\n", described);
+  }
+}
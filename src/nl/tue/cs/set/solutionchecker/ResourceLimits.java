@@ -0,0 +1,128 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Limits on the resources of a test JVM, so a few submissions allocating or starting threads in a loop cannot slow
+ * down the checks running next to them. The heap, stack and number of processors are limited through JVM options, an
+ * {@link OutOfMemoryError} stops the JVM right away. The number of threads is watched by a {@link ResourceWatchdog}
+ * inside the test JVM.
+ *
+ * Instances are immutable, the {@code with..} methods return a copy with one setting changed.
+ */
+public class ResourceLimits {
+  public static final int DEFAULT_HEAP_MEGABYTES = 256;
+  public static final int DEFAULT_STACK_KILOBYTES = 1024;
+  public static final int DEFAULT_PROCESSORS = 1;
+  public static final int DEFAULT_THREADS = 32;
+
+  /** Exit code of a JVM started with -XX:+ExitOnOutOfMemoryError that ran out of memory */
+  static final int EXIT_MEMORY_EXCEEDED = 3;
+  static final String MEMORY_EXCEEDED_MESSAGE = "Terminating due to java.lang.OutOfMemoryError";
+  /** Exit code of a test JVM of which the {@link ResourceWatchdog} found too many threads */
+  static final int EXIT_THREADS_EXCEEDED = 4;
+  static final String THREADS_EXCEEDED_MESSAGE = "Terminating due to thread limit";
+
+  private final int heapMegabytes;
+  private final int stackKilobytes;
+  private final int processors;
+  private final int threads;
+
+  private ResourceLimits(int heapMegabytes, int stackKilobytes, int processors, int threads) {
+    this.heapMegabytes = heapMegabytes;
+    this.stackKilobytes = stackKilobytes;
+    this.processors = processors;
+    this.threads = threads;
+  }
+
+  /**
+   * {@link #DEFAULT_HEAP_MEGABYTES} MB of heap, {@link #DEFAULT_STACK_KILOBYTES} KB of stack per thread,
+   * {@link #DEFAULT_PROCESSORS} processor and at most {@link #DEFAULT_THREADS} threads started by the tests.
+   */
+  public static ResourceLimits defaults() {
+    return new ResourceLimits(DEFAULT_HEAP_MEGABYTES, DEFAULT_STACK_KILOBYTES, DEFAULT_PROCESSORS, DEFAULT_THREADS);
+  }
+
+  public ResourceLimits withHeapMegabytes(int heapMegabytes) {
+    if (heapMegabytes < 16) {
+      throw new IllegalArgumentException("Heap must be at least 16 MB");
+    }
+
+    return new ResourceLimits(heapMegabytes, stackKilobytes, processors, threads);
+  }
+
+  public ResourceLimits withStackKilobytes(int stackKilobytes) {
+    if (stackKilobytes < 256) {
+      throw new IllegalArgumentException("Stack must be at least 256 KB");
+    }
+
+    return new ResourceLimits(heapMegabytes, stackKilobytes, processors, threads);
+  }
+
+  /**
+   * @param processors number of processors the test JVM sees, which also determines the number of GC threads
+   */
+  public ResourceLimits withProcessors(int processors) {
+    if (processors < 1) {
+      throw new IllegalArgumentException("Number of processors must be at least 1");
+    }
+
+    return new ResourceLimits(heapMegabytes, stackKilobytes, processors, threads);
+  }
+
+  /**
+   * @param threads maximum number of threads the tests may have alive next to the threads of the JVM itself
+   */
+  public ResourceLimits withThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads must be at least 1");
+    }
+
+    return new ResourceLimits(heapMegabytes, stackKilobytes, processors, threads);
+  }
+
+  public int getHeapMegabytes() {
+    return heapMegabytes;
+  }
+
+  public int getStackKilobytes() {
+    return stackKilobytes;
+  }
+
+  public int getProcessors() {
+    return processors;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * The tested code can exit with any exit code, so the message the JVM printed when the limit was hit must be there too
+   */
+  static boolean isMemoryExceeded(int exitCode, String output, String error) {
+    return exitCode == EXIT_MEMORY_EXCEEDED && (output.contains(MEMORY_EXCEEDED_MESSAGE) || error.contains(MEMORY_EXCEEDED_MESSAGE));
+  }
+
+  static boolean isThreadsExceeded(int exitCode, String error) {
+    return exitCode == EXIT_THREADS_EXCEEDED && error.contains(THREADS_EXCEEDED_MESSAGE);
+  }
+
+  /**
+   * @return the options for a test JVM enforcing these limits, except for the number of threads
+   */
+  List<String> toJvmOptions() {
+    List<String> options = new ArrayList<>();
+    options.add("-Xmx" + heapMegabytes + "m");
+    options.add("-Xss" + stackKilobytes + "k");
+    options.add("-XX:ActiveProcessorCount=" + processors);
+    options.add("-XX:+ExitOnOutOfMemoryError");
+    return options;
+  }
+
+  @Override
+  public String toString() {
+    return heapMegabytes + " MB heap, " + stackKilobytes + " KB stack, " + processors + " processor(s), " + threads + " thread(s)";
+  }
+}
@@ -0,0 +1,45 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Runs inside a test JVM and stops it with {@link ResourceLimits#EXIT_THREADS_EXCEEDED} as soon as the tests have more
+ * threads alive than allowed. The JVM has no option for this, and the operating system limits count the processes and
+ * threads of the whole user instead of one JVM.
+ */
+class ResourceWatchdog {
+  private static final long SAMPLE_MILLIS = 10;
+
+  private ResourceWatchdog() {
+  }
+
+  /**
+   * Starts watching, the threads alive at this moment and the watchdog itself do not count.
+   */
+  static void start(int maxThreads) {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    int baseline = threads.getThreadCount() + 1;
+
+    Thread watchdog = new Thread(() -> {
+      while (true) {
+        int started = threads.getThreadCount() - baseline;
+        if (started > maxThreads) {
+          System.out.flush();
+          System.err.println(ResourceLimits.THREADS_EXCEEDED_MESSAGE + ", " + started + " threads started, at most " + maxThreads + " allowed");
+          System.err.flush();
+          // Not exit, shutdown hooks of the tested code could keep the JVM alive
+          Runtime.getRuntime().halt(ResourceLimits.EXIT_THREADS_EXCEEDED);
+        }
+
+        try {
+          Thread.sleep(SAMPLE_MILLIS);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }, "resource-watchdog");
+    watchdog.setDaemon(true);
+    watchdog.start();
+  }
+}
@@ -0,0 +1,310 @@
+package nl.tue.cs.set.solutionchecker;
+
+import javax.tools.Diagnostic;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent cache of submission check results, so a re-run only checks the submissions that changed.
+ *
+ * A result is stored under a SHA-256 hash of everything that determines it: the java sources of the submission, the
+ * java classes that are compiled, the test sources, the JUnit lib, the JDK version, the test run settings that
+ * influence the outcome and the time budgets of the test classes. Every result is
+ * a small gzipped file in the cache directory named after its key. Results of checks that failed or timed out are not
+ * stored, those might succeed when checked again.
+ */
+class ResultCache {
+  private static final int FORMAT_VERSION = 4;
+  private static final String ENTRY_SUFFIX = ".result";
+
+  private final Path cacheDir;
+  private final byte[] sharedKey;
+  private final Set<String> testFileNames;
+  private final Set<String> used;
+
+  /**
+   * @param timeouts the budgets the tests run with, which can differ from those of the settings after calibration
+   */
+  ResultCache(Path cacheDir, Path junitLibPath, List<String> javaClasses, List<Path> testClasses, TestRunSettings testRunSettings,
+              TestTimeouts timeouts) {
+    this.cacheDir = cacheDir;
+    this.testFileNames = testClasses.stream().map(t -> t.getFileName().toString()).collect(Collectors.toSet());
+    this.used = Collections.synchronizedSet(new HashSet<>());
+
+    try {
+      Files.createDirectories(cacheDir);
+
+      MessageDigest digest = newDigest();
+      update(digest, "format " + FORMAT_VERSION);
+      update(digest, "jdk " + System.getProperty("java.vendor") + " " + System.getProperty("java.version"));
+      update(digest, "settings " + testRunSettings.getMode() + " " + testRunSettings.getOutputCap() + " " + testRunSettings.getResourceLimits());
+      update(digest, "classes " + new TreeSet<>(javaClasses));
+      updateWithFile(digest, junitLibPath);
+      for (Path testClass : testClasses) {
+        updateWithFile(digest, testClass);
+        String testClassName = testClass.getFileName().toString().replaceFirst("\\.java$", "");
+        update(digest, "budget " + testClassName + " " + timeouts.getCpuMillis(testClassName) + " " + timeouts.getWallMillis(testClassName));
+      }
+      this.sharedKey = digest.digest();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to set up result cache in \'" + cacheDir + "\', reason: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Computes the key of the submission in {@code dir} from all its java sources, except for files named like the test
+   * classes. Those are never compiled, the tests are always compiled from the test class paths.
+   */
+  String keyFor(Path dir) {
+    MessageDigest digest = newDigest();
+    digest.update(sharedKey);
+
+    try (Stream<Path> files = Files.walk(dir)) {
+      List<Path> sources = files
+              .filter(f -> f.toString().endsWith(".java") && Files.isRegularFile(f))
+              .filter(f -> !(dir.equals(f.getParent()) && testFileNames.contains(f.getFileName().toString())))
+              .sorted()
+              .collect(Collectors.toList());
+
+      for (Path source : sources) {
+        update(digest, dir.relativize(source).toString());
+        updateWithFile(digest, source);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to compute cache key of \'" + dir + "\', reason: " + e.getMessage(), e);
+    }
+
+    return toHex(digest.digest());
+  }
+
+  /**
+   * @return the cached result for the key, for the submission in {@code dir}, or null if there is none
+   */
+  SubmissionCheckResult load(String key, Path dir) {
+    used.add(key);
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(entry(key)))))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      return readResult(in, dir);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Ignoring unreadable cached result for \'" + dir + "\', reason: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * @return whether there is a result for the key, without marking it as used
+   */
+  boolean contains(String key) {
+    return Files.isRegularFile(entry(key));
+  }
+
+  void store(String key, SubmissionCheckResult result) {
+    if (!isCacheable(result)) {
+      return;
+    }
+
+    used.add(key);
+    Path entry = entry(key);
+
+    try {
+      Path temp = Files.createTempFile(cacheDir, key, ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+        out.writeInt(FORMAT_VERSION);
+        writeResult(out, result);
+      }
+      // Written to a temporary file first, so an interrupted run never leaves a half written entry behind
+      Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      System.out.println("Unable to cache result of \'" + result.getPath() + "\', reason: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Removes all entries that were not used since this cache was created.
+   */
+  void prune() {
+    try (Stream<Path> entries = Files.list(cacheDir)) {
+      for (Path entry : entries.collect(Collectors.toList())) {
+        String name = entry.getFileName().toString();
+        boolean stale = name.endsWith(ENTRY_SUFFIX) && !used.contains(name.substring(0, name.length() - ENTRY_SUFFIX.length()));
+        if (stale || name.endsWith(".tmp")) {
+          Files.deleteIfExists(entry);
+        }
+      }
+    } catch (IOException e) {
+      System.out.println("Unable to prune result cache \'" + cacheDir + "\', reason: " + e.getMessage());
+    }
+  }
+
+  private Path entry(String key) {
+    return cacheDir.resolve(key + ENTRY_SUFFIX);
+  }
+
+  private static boolean isCacheable(SubmissionCheckResult result) {
+    if (result.getCompileResult() == null || !result.getCheckError().isEmpty()) {
+      return false;
+    }
+
+    List<TestRunner.TestRunResult> testResults = result.getTestResults();
+    if (testResults != null) {
+      for (TestRunner.TestRunResult testResult : testResults) {
+        if (testResult.getOutcome() == TestRunner.TestRunOutcome.TIMEOUT) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  private static void writeResult(DataOutputStream out, SubmissionCheckResult result) throws IOException {
+    writeCompileResult(out, result.getCompileResult());
+    writeCompileResult(out, result.getTestsCompileResults());
+
+    List<TestRunner.TestRunResult> testResults = result.getTestResults();
+    out.writeInt(testResults == null ? -1 : testResults.size());
+    if (testResults != null) {
+      for (TestRunner.TestRunResult testResult : testResults) {
+        out.writeUTF(testResult.getOutcome().name());
+        writeString(out, testResult.getTestClass() == null ? "" : testResult.getTestClass());
+        writeString(out, testResult.getOutput());
+        writeString(out, testResult.getError());
+      }
+    }
+  }
+
+  private static SubmissionCheckResult readResult(DataInputStream in, Path dir) throws IOException {
+    Compiler.CompileResult compileResult = readCompileResult(in);
+    Compiler.CompileResult testsCompileResult = readCompileResult(in);
+
+    int testResultCount = in.readInt();
+    List<TestRunner.TestRunResult> testResults = null;
+    if (testResultCount >= 0) {
+      testResults = new ArrayList<>(testResultCount);
+      for (int i = 0; i < testResultCount; i++) {
+        TestRunner.TestRunOutcome outcome = TestRunner.TestRunOutcome.valueOf(in.readUTF());
+        String testClass = readString(in);
+        TestRunner.TestRunResult testResult = TestRunner.TestRunResult.restore(outcome, readString(in), readString(in));
+        testResults.add(testClass.isEmpty() ? testResult : testResult.withTestClass(testClass));
+      }
+    }
+
+    if (testsCompileResult == null) {
+      return SubmissionCheckResult.compilationErrors(dir, compileResult);
+    } else if (testResults == null) {
+      return SubmissionCheckResult.compilationErrorsOnTestFiles(dir, compileResult, testsCompileResult);
+    } else {
+      return SubmissionCheckResult.allSuccessful(dir, compileResult, testsCompileResult, testResults);
+    }
+  }
+
+  private static void writeCompileResult(DataOutputStream out, Compiler.CompileResult result) throws IOException {
+    out.writeBoolean(result != null);
+    if (result == null) {
+      return;
+    }
+
+    out.writeBoolean(result.isSuccessful());
+    writeString(out, result.isSuccessful() ? result.getOutput() : result.getError());
+    out.writeInt(result.getDiagnostics().size());
+    for (Compiler.CompileDiagnostic diagnostic : result.getDiagnostics()) {
+      out.writeUTF(diagnostic.getKind().name());
+      writeString(out, diagnostic.getSource());
+      out.writeLong(diagnostic.getLine());
+      out.writeLong(diagnostic.getColumn());
+      writeString(out, diagnostic.getCode() == null ? "" : diagnostic.getCode());
+      writeString(out, diagnostic.getMessage());
+      writeString(out, diagnostic.getFormatted());
+    }
+  }
+
+  private static Compiler.CompileResult readCompileResult(DataInputStream in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+
+    boolean successful = in.readBoolean();
+    String text = readString(in);
+    int diagnosticCount = in.readInt();
+    List<Compiler.CompileDiagnostic> diagnostics = new ArrayList<>(diagnosticCount);
+    for (int i = 0; i < diagnosticCount; i++) {
+      diagnostics.add(new Compiler.CompileDiagnostic(Diagnostic.Kind.valueOf(in.readUTF()), readString(in), in.readLong(),
+              in.readLong(), readString(in), readString(in), readString(in)));
+    }
+
+    if (successful) {
+      return Compiler.CompileResult.successful(text, diagnostics, CompiledClasses.empty());
+    } else {
+      return Compiler.CompileResult.unsuccessful(text, diagnostics);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    TestWorker.writeString(out, s);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return TestWorker.readString(in);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  private static void update(MessageDigest digest, String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    digest.update(bytes);
+    digest.update((byte) 0);
+  }
+
+  private static void updateWithFile(MessageDigest digest, Path file) throws IOException {
+    byte[] buffer = new byte[8192];
+    long length = 0;
+    try (InputStream in = Files.newInputStream(file)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+        length += read;
+      }
+    }
+    update(digest, Long.toString(length));
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+}
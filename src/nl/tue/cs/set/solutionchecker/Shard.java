@@ -0,0 +1,72 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.nio.file.Path;
+
+/**
+ * One of {@code count} parts of the submissions, so a batch can be checked by several checker processes, each with its
+ * own shard. A submission belongs to a shard by the hash of its directory name, which is the same on every machine and
+ * in every run, so the shards never overlap and together hold all submissions. See {@link ShardMerger} to combine the
+ * results of the shards.
+ */
+public class Shard {
+  private final int index;
+  private final int count;
+
+  /**
+   * @param index number of this shard, from 1 up to and including {@code count}
+   */
+  public Shard(int index, int count) {
+    if (count < 1 || index < 1 || index > count) {
+      throw new IllegalArgumentException("Shard must be i/N with 1 <= i <= N, not " + index + "/" + count);
+    }
+
+    this.index = index;
+    this.count = count;
+  }
+
+  /**
+   * @return the single shard holding all submissions
+   */
+  public static Shard all() {
+    return new Shard(1, 1);
+  }
+
+  /**
+   * @param shard shard as "i/N", e.g. "2/4"
+   * @return the shard, or null if it is not of that form
+   */
+  public static Shard parse(String shard) {
+    String[] parts = shard.split("/");
+    if (parts.length != 2) {
+      return null;
+    }
+
+    try {
+      return new Shard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  public boolean contains(Path submissionDir) {
+    // String.hashCode is specified, so unlike Path.hashCode it is the same on every platform and JVM
+    return Math.floorMod(submissionDir.getFileName().toString().hashCode(), count) == index - 1;
+  }
+
+  public boolean isAll() {
+    return count == 1;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return index + "/" + count;
+  }
+}
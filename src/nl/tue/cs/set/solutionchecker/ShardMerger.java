@@ -0,0 +1,147 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Combines the results of the shards of a batch (see {@link Shard}) into one csv file and one JSON Lines file, ordered
+ * by path like an unsharded run with {@code -order name}. Every shard saves its full results as JSON Lines, starting
+ * with the shard they are of, those are the parts that are merged. Only the location of every result is kept in
+ * memory, the results themselves are read one at a time while writing.
+ */
+public class ShardMerger {
+  private ShardMerger() {
+  }
+
+  /**
+   * @param parts JSON Lines files written by the shards
+   * @return the number of submissions in the merged files
+   * @throws IllegalArgumentException when the parts are not exactly shards 1 up to and including N of the same N, or a
+   *                                  submission is in more than one part
+   */
+  public static int merge(List<Path> parts, Path outputDir, String csvFileName) {
+    checkShards(parts);
+    Map<Path, Location> locations = new TreeMap<>();
+
+    for (Path part : parts) {
+      SubmissionResultJsonReader reader = new SubmissionResultJsonReader(part);
+      for (Map.Entry<Path, Long> entry : reader.index().entrySet()) {
+        Location earlier = locations.put(entry.getKey(), new Location(part, reader, entry.getValue()));
+        if (earlier != null) {
+          throw new IllegalArgumentException("Submission \'" + entry.getKey() + "\' is in both \'" + earlier.part + "\' and \'" + part
+                  + "\', are the parts from different shards of the same batch?");
+        }
+      }
+    }
+
+    try (SubmissionResultCsvWriter csvWriter = new SubmissionResultCsvWriter();
+         SubmissionResultJsonWriter jsonWriter = new SubmissionResultJsonWriter()) {
+      csvWriter.open(outputDir, csvFileName);
+      jsonWriter.open(outputDir, csvFileName + ".jsonl");
+
+      for (Location location : locations.values()) {
+        SubmissionCheckResult result = location.reader.readAt(location.offset);
+        csvWriter.append(result);
+        jsonWriter.append(result);
+      }
+    }
+
+    return locations.size();
+  }
+
+  /**
+   * Makes sure the parts are all shards of the batch, each one once, so the merged files hold every submission.
+   */
+  private static void checkShards(List<Path> parts) {
+    Map<Integer, Path> partsByIndex = new TreeMap<>();
+    Shard first = null;
+
+    for (Path part : parts) {
+      Shard shard = new SubmissionResultJsonReader(part).shard();
+      if (shard == null) {
+        throw new IllegalArgumentException("Part \'" + part + "\' does not say which shard it is of, was it saved by the checker with -shard?");
+      } else if (first != null && shard.getCount() != first.getCount()) {
+        throw new IllegalArgumentException("Part \'" + part + "\' is shard " + shard + " but \'" + partsByIndex.get(first.getIndex()) + "\' is shard "
+                + first + ", are the parts from different batches?");
+      }
+
+      Path earlier = partsByIndex.put(shard.getIndex(), part);
+      if (earlier != null) {
+        throw new IllegalArgumentException("Parts \'" + earlier + "\' and \'" + part + "\' are both shard " + shard);
+      }
+      if (first == null) {
+        first = shard;
+      }
+    }
+
+    if (first != null && partsByIndex.size() != first.getCount()) {
+      List<String> missing = new ArrayList<>();
+      for (int index = 1; index <= first.getCount(); index++) {
+        if (!partsByIndex.containsKey(index)) {
+          missing.add(new Shard(index, first.getCount()).toString());
+        }
+      }
+      throw new IllegalArgumentException("Shard(s) " + String.join(", ", missing) + " are missing, all " + first.getCount() + " shards must be merged at once");
+    }
+  }
+
+  public static void main(String[] args) {
+    String outputDir = Arguments.getValue(args, "-outputdir");
+    String csvFileName = Arguments.getValue(args, "-csvname");
+    List<Path> parts = new ArrayList<>();
+    for (String part : Arguments.getValues(args, "-part")) {
+      parts.add(Paths.get(part));
+    }
+
+    boolean error = false;
+    if (outputDir == null || !Files.isDirectory(Paths.get(outputDir))) {
+      System.out.println("Output dir (-outputdir) not supplied or not an (existing) directory");
+      error = true;
+    } else if (csvFileName == null) {
+      System.out.println("CSV file name (-csvname) not supplied");
+      error = true;
+    } else if (parts.isEmpty()) {
+      System.out.println("No parts (-part) to merge");
+      error = true;
+    } else {
+      for (Path part : parts) {
+        if (!Files.isRegularFile(part)) {
+          System.out.println("Part \'" + part + "\' does not exist");
+          error = true;
+        }
+      }
+    }
+
+    if (error) {
+      printUsage();
+      System.exit(-1);
+    }
+
+    int submissions = merge(parts, Paths.get(outputDir), csvFileName);
+    System.out.println("Merged " + submissions + " submission(s) from " + parts.size() + " part(s) into \'" + Paths.get(outputDir).resolve(csvFileName) + "\'");
+  }
+
+  private static void printUsage() {
+    System.out.println("Usage: -outputdir <output dir to save csv> -csvname <name of csv file> <parts>");
+    System.out.println("  where <parts> is one -part <JSON Lines file of a shard> for every shard 1/N up to and including N/N, the <csv name>.jsonl");
+    System.out.println("  files the checker saves with -shard");
+    System.out.println("  Example: -outputdir ./results -csvname results.csv -part shard1/results.csv.jsonl -part shard2/results.csv.jsonl");
+  }
+
+  private static class Location {
+    private final Path part;
+    private final SubmissionResultJsonReader reader;
+    private final long offset;
+
+    private Location(Path part, SubmissionResultJsonReader reader, long offset) {
+      this.part = part;
+      this.reader = reader;
+      this.offset = offset;
+    }
+  }
+}
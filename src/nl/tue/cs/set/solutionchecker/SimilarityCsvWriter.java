@@ -0,0 +1,25 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes the most similar pairs of submissions found by {@link SimilarityIndex}, one pair per row.
+ */
+public class SimilarityCsvWriter extends CsvWriter {
+
+  public void createAndSave(List<SimilarityIndex.SimilarPair> pairs, Path outputDir, String csvFileName) {
+    openFile(outputDir, csvFileName);
+    try {
+      write("Submission").write("Other submission").write("Similarity %").write("Shared fingerprints");
+      write("Fingerprints").writeLast("Other fingerprints");
+      for (SimilarityIndex.SimilarPair pair : pairs) {
+        write(pair.getSubmission().toString()).write(pair.getOther().toString());
+        write((int) Math.round(pair.getSimilarity() * 100)).write(pair.getShared());
+        write(pair.getFingerprints()).writeLast(pair.getOtherFingerprints());
+      }
+    } finally {
+      close();
+    }
+  }
+}
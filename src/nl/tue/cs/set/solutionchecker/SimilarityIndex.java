@@ -0,0 +1,157 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the submissions of a batch with similar sources, e.g. to spot copied work. Every submission is added with its
+ * {@link SourceFingerprints}, which go into an inverted index from fingerprint to the submissions having it. Pairs
+ * are only counted for submissions sharing a fingerprint, and only for fingerprints at most {@link #MAX_SHARED}
+ * submissions have, so the work grows linearly with the number of submissions rather than with the number of pairs.
+ *
+ * Fingerprints that more than {@link #MAX_SHARED} submissions have are ignored, as are fingerprints that more than
+ * half of the submissions have (and more than {@link #MAJORITY_MIN}), which is what matters in small batches. Those
+ * come from code many submissions have, like a given skeleton or a common loop, and would otherwise make every pair
+ * look alike. A group of more than {@link #MAX_SHARED} submissions with the same copied code is not found through the
+ * fingerprints of that code.
+ */
+public class SimilarityIndex {
+  static final int MAX_SHARED = 10;
+  static final int MAJORITY_MIN = 2;
+
+  private final List<Path> submissions = new ArrayList<>();
+  private final List<int[]> fingerprints = new ArrayList<>();
+  private final Map<Integer, List<Integer>> index = new HashMap<>();
+
+  public synchronized void add(Path submission, int[] submissionFingerprints) {
+    int id = submissions.size();
+    submissions.add(submission);
+    fingerprints.add(submissionFingerprints);
+
+    for (int fingerprint : submissionFingerprints) {
+      index.computeIfAbsent(fingerprint, f -> new ArrayList<>()).add(id);
+    }
+  }
+
+  public synchronized int size() {
+    return submissions.size();
+  }
+
+  /**
+   * @return at most {@code limit} pairs that share fingerprints, the most similar first, ties by path
+   */
+  public synchronized List<SimilarPair> mostSimilar(int limit) {
+    int maxShared = Math.min(MAX_SHARED, Math.max(MAJORITY_MIN, submissions.size() / 2));
+
+    int[] sizes = new int[submissions.size()];
+    for (int id = 0; id < sizes.length; id++) {
+      for (int fingerprint : fingerprints.get(id)) {
+        if (index.get(fingerprint).size() <= maxShared) {
+          sizes[id]++;
+        }
+      }
+    }
+
+    Comparator<SimilarPair> order = Comparator.comparingDouble(SimilarPair::getSimilarity)
+            .thenComparing(SimilarPair::getShared)
+            .thenComparing(SimilarPair::getSubmission, Comparator.reverseOrder())
+            .thenComparing(SimilarPair::getOther, Comparator.reverseOrder());
+    // The least similar of the best pairs so far on top, to be replaced by a more similar one
+    PriorityQueue<SimilarPair> best = new PriorityQueue<>(order);
+
+    for (int id = 0; id < submissions.size(); id++) {
+      Map<Integer, Integer> shared = new HashMap<>();
+      for (int fingerprint : fingerprints.get(id)) {
+        List<Integer> having = index.get(fingerprint);
+        if (having.size() > maxShared) {
+          continue;
+        }
+        for (int other : having) {
+          // Every pair once
+          if (other > id) {
+            shared.merge(other, 1, Integer::sum);
+          }
+        }
+      }
+
+      for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+        int other = entry.getKey();
+        Path first = submissions.get(id);
+        Path second = submissions.get(other);
+        boolean ordered = first.compareTo(second) <= 0;
+        best.add(new SimilarPair(ordered ? first : second, ordered ? second : first, entry.getValue(),
+                ordered ? sizes[id] : sizes[other], ordered ? sizes[other] : sizes[id]));
+        if (best.size() > limit) {
+          best.poll();
+        }
+      }
+    }
+
+    List<SimilarPair> pairs = new ArrayList<>(best);
+    pairs.sort(order.reversed());
+    return pairs;
+  }
+
+  public static class SimilarPair {
+    private final Path submission;
+    private final Path other;
+    private final int shared;
+    private final int fingerprints;
+    private final int otherFingerprints;
+
+    private SimilarPair(Path submission, Path other, int shared, int fingerprints, int otherFingerprints) {
+      this.submission = submission;
+      this.other = other;
+      this.shared = shared;
+      this.fingerprints = fingerprints;
+      this.otherFingerprints = otherFingerprints;
+    }
+
+    public Path getSubmission() {
+      return submission;
+    }
+
+    public Path getOther() {
+      return other;
+    }
+
+    /**
+     * @return the number of fingerprints both submissions have, not counting those of code most submissions have
+     */
+    public int getShared() {
+      return shared;
+    }
+
+    public int getFingerprints() {
+      return fingerprints;
+    }
+
+    public int getOtherFingerprints() {
+      return otherFingerprints;
+    }
+
+    /**
+     * @return the fraction of the fingerprints of the smaller of the two submissions that the other one has as well,
+     *         so a copy with code added to it still is 1
+     */
+    public double getSimilarity() {
+      return (double) shared / Math.min(fingerprints, otherFingerprints);
+    }
+
+    @Override
+    public String toString() {
+      return "SimilarPair{" +
+              "submission=" + submission +
+              ", other=" + other +
+              ", shared=" + shared +
+              ", fingerprints=" + fingerprints +
+              ", otherFingerprints=" + otherFingerprints +
+              '}';
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package nl.tue.cs.set.solutionchecker;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.PrimitiveTypeTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreeScanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Fingerprints of the sources of a submission, for {@link SimilarityIndex}. The syntax trees javac parses are turned
+ * into a stream of tokens, one per tree node in source order, in which all names and literal values are left out.
+ * Renaming variables, changing constants, layout or comments therefore does not change the stream. Every run of
+ * {@link #K} consecutive tokens is hashed, and of every {@link #WINDOW} consecutive hashes only the smallest is kept
+ * (winnowing). Copied code of at least {@code K + WINDOW - 1} tokens is then guaranteed to share a fingerprint.
+ *
+ * As a {@link TaskListener} the fingerprints are taken while compiling, right after parsing: later phases of javac
+ * change the trees.
+ */
+class SourceFingerprints implements TaskListener {
+  static final int K = 12;
+  static final int WINDOW = 8;
+
+  private final TreeSet<Integer> fingerprints = new TreeSet<>();
+
+  static int[] of(Iterable<? extends CompilationUnitTree> units) {
+    SourceFingerprints fingerprints = new SourceFingerprints();
+    for (CompilationUnitTree unit : units) {
+      fingerprints.add(unit);
+    }
+    return fingerprints.get();
+  }
+
+  @Override
+  public void finished(TaskEvent e) {
+    if (e.getKind() == TaskEvent.Kind.PARSE && e.getCompilationUnit() != null) {
+      add(e.getCompilationUnit());
+    }
+  }
+
+  void add(CompilationUnitTree unit) {
+    List<Integer> tokens = new ArrayList<>();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void scan(Tree tree, Void p) {
+        if (tree != null) {
+          // Types are kept apart, replacing an int by a double changes the code, renaming does not
+          int detail = tree instanceof PrimitiveTypeTree ? ((PrimitiveTypeTree) tree).getPrimitiveTypeKind().ordinal() + 1 : 0;
+          tokens.add(tree.getKind().ordinal() * 32 + detail);
+        }
+        return super.scan(tree, p);
+      }
+    }.scan(unit, null);
+
+    winnow(hashes(tokens));
+  }
+
+  /**
+   * @return the distinct fingerprints, sorted
+   */
+  int[] get() {
+    return fingerprints.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static int[] hashes(List<Integer> tokens) {
+    int[] hashes = new int[Math.max(tokens.size() - K + 1, 0)];
+    for (int i = 0; i < hashes.length; i++) {
+      int hash = 0;
+      for (int j = i; j < i + K; j++) {
+        hash = hash * 31 + tokens.get(j);
+      }
+      // Spread the bits, so the minimum of a window is not biased towards certain tokens
+      hashes[i] = hash * 0x9E3779B1;
+    }
+    return hashes;
+  }
+
+  private void winnow(int[] hashes) {
+    if (hashes.length > 0 && hashes.length < WINDOW) {
+      // Shorter than a window, the whole source is one window
+      fingerprints.add(min(hashes, 0, hashes.length));
+      return;
+    }
+
+    int previous = -1;
+    for (int start = 0; start + WINDOW <= hashes.length; start++) {
+      int position = minPosition(hashes, start, start + WINDOW);
+      if (position != previous) {
+        fingerprints.add(hashes[position]);
+        previous = position;
+      }
+    }
+  }
+
+  private static int min(int[] hashes, int from, int to) {
+    return hashes[minPosition(hashes, from, to)];
+  }
+
+  /**
+   * @return the position of the smallest hash, the rightmost one on ties so a window keeps it as long as it can
+   */
+  private static int minPosition(int[] hashes, int from, int to) {
+    int position = from;
+    for (int i = from + 1; i < to; i++) {
+      if (hashes[i] <= hashes[position]) {
+        position = i;
+      }
+    }
+    return position;
+  }
+}
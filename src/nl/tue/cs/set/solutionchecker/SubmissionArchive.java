@@ -0,0 +1,51 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A zip file of submissions, e.g. as exported by the LMS, read in place through the zip file system instead of being
+ * extracted first. Every directory at the top of the zip file is a submission. Its sources are compiled straight from
+ * the zip file, only the files a test JVM loads from the classpath are copied to its {@link Workspace}.
+ */
+class SubmissionArchive implements Closeable {
+  private final Path zipFile;
+  private final FileSystem fileSystem;
+
+  private SubmissionArchive(Path zipFile, FileSystem fileSystem) {
+    this.zipFile = zipFile;
+    this.fileSystem = fileSystem;
+  }
+
+  static boolean isArchive(Path file) {
+    return Files.isRegularFile(file) && file.getFileName().toString().toLowerCase().endsWith(".zip");
+  }
+
+  static SubmissionArchive open(Path zipFile) {
+    try {
+      return new SubmissionArchive(zipFile, FileSystems.newFileSystem(zipFile, (ClassLoader) null));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to open \'" + zipFile + "\' as zip file, reason: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @return the directory holding the submissions, to be used as base path
+   */
+  Path getRoot() {
+    return fileSystem.getPath("/");
+  }
+
+  @Override
+  public void close() {
+    try {
+      fileSystem.close();
+    } catch (IOException e) {
+      System.out.println("Unable to close \'" + zipFile + "\', reason: " + e.getMessage());
+    }
+  }
+}
@@ -8,12 +8,25 @@ public class SubmissionCheckResult {
   private final Compiler.CompileResult compileResult;
   private final Compiler.CompileResult testsCompileResults;
   private final List<TestRunner.TestRunResult> testResults;
+  private final String checkError;
+  private final PhaseTimings timings;
 
   private SubmissionCheckResult(Path path, Compiler.CompileResult compileResult, Compiler.CompileResult testsCompileResults, List<TestRunner.TestRunResult> testResults) {
+    this(path, compileResult, testsCompileResults, testResults, "");
+  }
+
+  private SubmissionCheckResult(Path path, Compiler.CompileResult compileResult, Compiler.CompileResult testsCompileResults, List<TestRunner.TestRunResult> testResults, String checkError) {
+    this(path, compileResult, testsCompileResults, testResults, checkError, new PhaseTimings());
+  }
+
+  private SubmissionCheckResult(Path path, Compiler.CompileResult compileResult, Compiler.CompileResult testsCompileResults, List<TestRunner.TestRunResult> testResults, String checkError,
+                                PhaseTimings timings) {
     this.path = path;
     this.compileResult = compileResult;
     this.testsCompileResults = testsCompileResults;
     this.testResults = testResults;
+    this.checkError = checkError;
+    this.timings = timings;
   }
 
   public static SubmissionCheckResult allSuccessful(Path path, Compiler.CompileResult compileResult, Compiler.CompileResult testsCompileResults, List<TestRunner.TestRunResult> testResults) {
@@ -28,6 +41,24 @@ public class SubmissionCheckResult {
     return new SubmissionCheckResult(path, compileResult, null, null);
   }
 
+  public static SubmissionCheckResult checkFailed(Path path, String checkError) {
+    return new SubmissionCheckResult(path, null, null, null, checkError);
+  }
+
+  /**
+   * @return the result of a check that failed after the submission, and possibly the tests, compiled
+   */
+  public static SubmissionCheckResult checkFailed(Path path, Compiler.CompileResult compileResult, Compiler.CompileResult testsCompileResults, String checkError) {
+    return new SubmissionCheckResult(path, compileResult, testsCompileResults, null, checkError);
+  }
+
+  /**
+   * @return a copy of this result with the given phase timings
+   */
+  public SubmissionCheckResult withTimings(PhaseTimings timings) {
+    return new SubmissionCheckResult(path, compileResult, testsCompileResults, testResults, checkError, timings);
+  }
+
   public Path getPath() {
     return path;
   }
@@ -43,4 +74,12 @@ public class SubmissionCheckResult {
   public List<TestRunner.TestRunResult> getTestResults() {
     return testResults;
   }
+
+  public String getCheckError() {
+    return checkError;
+  }
+
+  public PhaseTimings getTimings() {
+    return timings;
+  }
 }
@@ -4,20 +4,60 @@ import java.nio.file.Path;
 import java.util.List;
 
 public class SubmissionResultCsvWriter extends CsvWriter {
+  private final OutputStore outputStore;
 
+  public SubmissionResultCsvWriter() {
+    this(null);
+  }
+
+  /**
+   * @param outputStore store to look up every output in, an output a submission earlier in the csv file already had
+   *                    is then replaced by a reference to that submission; or null to always write the outputs
+   */
+  public SubmissionResultCsvWriter(OutputStore outputStore) {
+    this.outputStore = outputStore;
+  }
 
   public void createAndSave(List<SubmissionCheckResult> results, Path outputDir, String csvFileName) {
+    open(outputDir, csvFileName);
+    try {
+      results.forEach(r -> writeRow(r));
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Creates the csv file and writes the header, rows can then be added one at a time with {@link #append}.
+   */
+  public void open(Path outputDir, String csvFileName) {
+    openFile(outputDir, csvFileName);
     writeHeader();
-    results.forEach(r -> writeRow(r));
+    flush();
+  }
 
-    saveFile(outputDir, csvFileName);
+  public void append(SubmissionCheckResult result) {
+    writeRow(result);
+    flush();
   }
 
   private void writeHeader() {
     write("Path");
     write("Compile outcome").write("Compile output").write("Compile error output");
     write("Test file(s) compile outcome").write("Test file(s) compile output").write("Test file(s) compile error output");
-    write("Test result").write("Test result output").writeLast("Test result error output");
+    write("Test result").write("Test result output").write("Test result error output");
+    write("Tests run").write("Tests passed").write("Test failures").write("Test errors").write("Failed tests");
+    write("Check error");
+
+    PhaseTimings.Phase[] phases = PhaseTimings.Phase.values();
+    for (int i = 0; i < phases.length; i++) {
+      write(phases[i].getLabel() + " ms");
+      if (i < phases.length - 1) {
+        write(phases[i].getLabel() + " CPU ms");
+      } else {
+        writeLast(phases[i].getLabel() + " CPU ms");
+      }
+    }
   }
 
   private void writeRow(SubmissionCheckResult result) {
@@ -26,8 +66,8 @@ public class SubmissionResultCsvWriter extends CsvWriter {
     Compiler.CompileResult compileResult = result.getCompileResult();
     if (compileResult != null) {
       write(compileResult.getOutcome().toString());
-      write(compileResult.getOutput());
-      write(compileResult.getError());
+      writeOutput(result, "Compile output", compileResult.getOutput());
+      writeOutput(result, "Compile error output", compileResult.getError());
     } else {
       writeEmpty().writeEmpty().writeEmpty();
     }
@@ -35,8 +75,8 @@ public class SubmissionResultCsvWriter extends CsvWriter {
     Compiler.CompileResult testCompileResult = result.getTestsCompileResults();
     if (testCompileResult != null) {
       write(testCompileResult.getOutcome().toString());
-      write(testCompileResult.getOutput());
-      write(testCompileResult.getError());
+      writeOutput(result, "Test file(s) compile output", testCompileResult.getOutput());
+      writeOutput(result, "Test file(s) compile error output", testCompileResult.getError());
     } else {
       writeEmpty().writeEmpty().writeEmpty();
     }
@@ -44,20 +84,97 @@ public class SubmissionResultCsvWriter extends CsvWriter {
     List<TestRunner.TestRunResult> testResults = result.getTestResults();
     if (testResults != null && !testResults.isEmpty()) {
       write(getProminent(testResults).toString());
-      write(flattenTestResultOutput(testResults));
-      writeLast(flattenTestResultErrorOutput(testResults));
+      writeOutput(result, "Test result output", flattenTestResultOutput(testResults));
+      writeOutput(result, "Test result error output", flattenTestResultErrorOutput(testResults));
+    } else {
+      writeEmpty().writeEmpty().writeEmpty();
+    }
+
+    writeTestCounts(testResults);
+
+    write(result.getCheckError());
+    writeTimings(result.getTimings());
+  }
+
+  private void writeOutput(SubmissionCheckResult result, String column, String output) {
+    Path same = outputStore != null ? outputStore.put(result.getPath(), column, output) : null;
+    write(same != null ? "Same as \'" + same + "\'" : output);
+  }
+
+  /**
+   * Writes the test counts reported by JUnit, added up over the test classes that got as far as reporting, and one line
+   * per failed test.
+   */
+  private void writeTestCounts(List<TestRunner.TestRunResult> testResults) {
+    int testsRun = 0;
+    int passed = 0;
+    int failures = 0;
+    int errors = 0;
+    StringBuilder failedTests = new StringBuilder();
+    boolean reported = false;
+
+    if (testResults != null) {
+      for (TestRunner.TestRunResult testResult : testResults) {
+        TestReport report = testResult.getReport();
+        if (report == null) {
+          continue;
+        }
+
+        reported = true;
+        testsRun += report.getTestsRun();
+        passed += report.getPassed();
+        failures += report.getFailures();
+        errors += report.getErrors();
+        report.getFailedTests().forEach(t -> failedTests.append(t).append("\n"));
+      }
+    }
+
+    if (reported) {
+      write(testsRun).write(passed).write(failures).write(errors).write(failedTests.toString());
     } else {
-      writeEmpty().writeEmpty().writeEmptyLast();
+      writeEmpty().writeEmpty().writeEmpty().writeEmpty().writeEmpty();
     }
   }
 
+  private void writeTimings(PhaseTimings timings) {
+    PhaseTimings.Phase[] phases = PhaseTimings.Phase.values();
+    for (int i = 0; i < phases.length; i++) {
+      PhaseTimings.Phase phase = phases[i];
+      boolean last = i == phases.length - 1;
+
+      if (timings.has(phase)) {
+        write(toMillis(timings.getWallNanos(phase)));
+      } else {
+        writeEmpty();
+      }
+
+      if (timings.has(phase) && timings.getCpuNanos(phase) >= 0) {
+        if (last) {
+          writeLast(toMillis(timings.getCpuNanos(phase)));
+        } else {
+          write(toMillis(timings.getCpuNanos(phase)));
+        }
+      } else if (last) {
+        writeEmptyLast();
+      } else {
+        writeEmpty();
+      }
+    }
+  }
+
+  private static int toMillis(long nanos) {
+    return (int) (nanos / 1_000_000);
+  }
+
   private TestRunner.TestRunOutcome getProminent(List<TestRunner.TestRunResult> testResults) {
     TestRunner.TestRunOutcome overall = TestRunner.TestRunOutcome.SUCCESS;
 
     for (TestRunner.TestRunResult testResult : testResults) {
       if (testResult.getOutcome() == TestRunner.TestRunOutcome.ERROR) {
         return TestRunner.TestRunOutcome.ERROR;
-      } else if (testResult.getOutcome() == TestRunner.TestRunOutcome.FAILURE) {
+      } else if (testResult.getOutcome().isLimitExceeded()) {
+        overall = testResult.getOutcome();
+      } else if (testResult.getOutcome() == TestRunner.TestRunOutcome.FAILURE && !overall.isLimitExceeded()) {
         overall = TestRunner.TestRunOutcome.FAILURE;
       }
     }
@@ -0,0 +1,270 @@
+package nl.tue.cs.set.solutionchecker;
+
+import javax.tools.Diagnostic;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the results written by {@link SubmissionResultJsonWriter} back, one line at a time, so a file with the results
+ * of thousands of submissions never has to be in memory at once. {@link #index()} finds where the result of every
+ * submission starts, after which single results are read with {@link #readAt(long)}. The line saying which shard the
+ * results are of, if any, is not a result, see {@link #shard()}.
+ */
+public class SubmissionResultJsonReader {
+  private static final String SHARD_PREFIX = "{\"shard\":";
+
+  private final Path file;
+
+  public SubmissionResultJsonReader(Path file) {
+    if (!Files.isRegularFile(file)) {
+      throw new IllegalArgumentException("Json file \'" + file + "\' does not exist");
+    }
+    this.file = file;
+  }
+
+  /**
+   * @return all results in the order of the file, each one only read and parsed when the stream gets to it; close the
+   *         stream when done
+   */
+  public Stream<SubmissionCheckResult> results() {
+    InputStream in = openAt(0);
+    Iterator<SubmissionCheckResult> iterator = new Iterator<SubmissionCheckResult>() {
+      private byte[] next = readResultLine(in);
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public SubmissionCheckResult next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        SubmissionCheckResult result = parse(next);
+        next = readResultLine(in);
+        return result;
+      }
+    };
+
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(() -> close(in));
+  }
+
+  /**
+   * @return the offset in the file of the result of every submission, by the path of the submission
+   */
+  public Map<Path, Long> index() {
+    Map<Path, Long> index = new LinkedHashMap<>();
+
+    try (InputStream in = openAt(0)) {
+      long offset = 0;
+      byte[] line;
+      while ((line = readLine(in)) != null) {
+        // The path is the first field, so the rest of the line does not have to be parsed
+        if (!isShardLine(line)) {
+          index.put(Paths.get(readPath(line)), offset);
+        }
+        offset += line.length + 1;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to index \'" + file + "\'", e);
+    }
+
+    return index;
+  }
+
+  /**
+   * @return the shard the results are of, or null if the file does not start with a line saying so, i.e. it was not
+   *         saved by a shard (see {@link SubmissionResultJsonWriter#writeShard})
+   */
+  @SuppressWarnings("unchecked")
+  public Shard shard() {
+    try (InputStream in = openAt(0)) {
+      byte[] line = readLine(in);
+      if (line == null || !isShardLine(line)) {
+        return null;
+      }
+
+      String shard = (String) ((Map<String, Object>) Json.parse(new String(line, StandardCharsets.UTF_8))).get("shard");
+      Shard parsed = shard != null ? Shard.parse(shard) : null;
+      if (parsed == null) {
+        throw new IllegalArgumentException("Shard \'" + shard + "\' of \'" + file + "\' is not of the form i/N");
+      }
+      return parsed;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read \'" + file + "\'", e);
+    }
+  }
+
+  /**
+   * @param offset offset of the result as found by {@link #index()}
+   */
+  public SubmissionCheckResult readAt(long offset) {
+    try (InputStream in = openAt(offset)) {
+      byte[] line = readLine(in);
+      if (line == null) {
+        throw new IllegalArgumentException("No result at offset " + offset + " of \'" + file + "\'");
+      }
+      return parse(line);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read \'" + file + "\'", e);
+    }
+  }
+
+  private InputStream openAt(long offset) {
+    try {
+      // Every stream reads from its own position, so results can be read while iterating
+      FileChannel reader = FileChannel.open(file, StandardOpenOption.READ);
+      reader.position(offset);
+      return new BufferedInputStream(Channels.newInputStream(reader));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read \'" + file + "\'", e);
+    }
+  }
+
+  /**
+   * @return the bytes of the next non-empty line, without the line separator, or null at the end of the stream
+   */
+  private static byte[] readLine(InputStream in) {
+    try {
+      ByteArrayOutputStream line = new ByteArrayOutputStream();
+      int b;
+      while ((b = in.read()) != -1 && b != '\n') {
+        line.write(b);
+      }
+
+      if (b == -1 && line.size() == 0) {
+        return null;
+      }
+      return line.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return the next line holding a result, skipping the shard line, or null at the end of the stream
+   */
+  private static byte[] readResultLine(InputStream in) {
+    byte[] line = readLine(in);
+    while (line != null && isShardLine(line)) {
+      line = readLine(in);
+    }
+    return line;
+  }
+
+  private static boolean isShardLine(byte[] line) {
+    return new String(line, 0, Math.min(line.length, SHARD_PREFIX.length()), StandardCharsets.UTF_8).equals(SHARD_PREFIX);
+  }
+
+  private static void close(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String readPath(byte[] line) {
+    String prefix = "{\"path\":";
+    String text = new String(line, StandardCharsets.UTF_8);
+    if (!text.startsWith(prefix)) {
+      throw new IllegalArgumentException("Line does not start with the path of a submission");
+    }
+
+    int end = text.indexOf(",\"checkError\":", prefix.length());
+    return (String) Json.parse(text.substring(prefix.length(), end < 0 ? text.length() - 1 : end));
+  }
+
+  @SuppressWarnings("unchecked")
+  static SubmissionCheckResult parse(byte[] line) {
+    Map<String, Object> json = (Map<String, Object>) Json.parse(new String(line, StandardCharsets.UTF_8));
+
+    Path path = Paths.get((String) json.get("path"));
+    Compiler.CompileResult compileResult = readCompileResult((Map<String, Object>) json.get("compile"));
+    Compiler.CompileResult testsCompileResult = readCompileResult((Map<String, Object>) json.get("testCompile"));
+    List<Object> tests = (List<Object>) json.get("tests");
+
+    String checkError = (String) json.get("checkError");
+
+    SubmissionCheckResult result;
+    if (compileResult == null) {
+      result = SubmissionCheckResult.checkFailed(path, checkError);
+    } else if (checkError != null && !checkError.isEmpty()) {
+      result = SubmissionCheckResult.checkFailed(path, compileResult, testsCompileResult, checkError);
+    } else if (testsCompileResult == null) {
+      result = SubmissionCheckResult.compilationErrors(path, compileResult);
+    } else if (tests == null) {
+      result = SubmissionCheckResult.compilationErrorsOnTestFiles(path, compileResult, testsCompileResult);
+    } else {
+      List<TestRunner.TestRunResult> testResults = new ArrayList<>(tests.size());
+      for (Object test : tests) {
+        testResults.add(readTestResult((Map<String, Object>) test));
+      }
+      result = SubmissionCheckResult.allSuccessful(path, compileResult, testsCompileResult, testResults);
+    }
+
+    PhaseTimings timings = new PhaseTimings();
+    Map<String, Object> phases = (Map<String, Object>) json.get("timings");
+    for (Map.Entry<String, Object> phase : phases.entrySet()) {
+      Map<String, Object> timing = (Map<String, Object>) phase.getValue();
+      timings.add(PhaseTimings.Phase.valueOf(phase.getKey()), (Long) timing.get("wallNanos"), (Long) timing.get("cpuNanos"));
+    }
+
+    return result.withTimings(timings);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Compiler.CompileResult readCompileResult(Map<String, Object> json) {
+    if (json == null) {
+      return null;
+    }
+
+    List<Compiler.CompileDiagnostic> diagnostics = new ArrayList<>();
+    for (Object value : (List<Object>) json.get("diagnostics")) {
+      Map<String, Object> diagnostic = (Map<String, Object>) value;
+      diagnostics.add(new Compiler.CompileDiagnostic(Diagnostic.Kind.valueOf((String) diagnostic.get("kind")), (String) diagnostic.get("source"),
+              (Long) diagnostic.get("line"), (Long) diagnostic.get("column"), (String) diagnostic.get("code"),
+              (String) diagnostic.get("message"), (String) diagnostic.get("formatted")));
+    }
+
+    if (Boolean.TRUE.equals(json.get("precompiled"))) {
+      return Compiler.CompileResult.precompiled(CompiledClasses.empty());
+    } else if (Compiler.CompileOutcome.SUCCESS.name().equals(json.get("outcome"))) {
+      return Compiler.CompileResult.successful((String) json.get("output"), diagnostics, CompiledClasses.empty());
+    } else {
+      return Compiler.CompileResult.unsuccessful((String) json.get("error"), diagnostics);
+    }
+  }
+
+  private static TestRunner.TestRunResult readTestResult(Map<String, Object> json) {
+    TestRunner.TestRunResult result = TestRunner.TestRunResult.restore(TestRunner.TestRunOutcome.valueOf((String) json.get("outcome")),
+            (String) json.get("output"), (String) json.get("error"));
+    if (json.get("testClass") != null) {
+      result = result.withTestClass((String) json.get("testClass"));
+    }
+    return result.withTimings((Long) json.get("wallNanos"), (Long) json.get("cpuNanos"));
+  }
+}
@@ -0,0 +1,194 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes the results as JSON Lines: one JSON object per submission on a line of its own, in UTF-8. Unlike the csv
+ * file nothing is flattened, every test class has its own result, the compile diagnostics are kept as they are and
+ * the timings are included. Every line is flushed once written, see {@link SubmissionResultJsonReader} to read them.
+ *
+ * <pre>
+ * {"path": "...", "checkError": "...",
+ *  "compile": {"outcome": "SUCCESS", "precompiled": false, "output": "...", "error": "...",
+ *              "diagnostics": [{"kind": "ERROR", "source": "...", "line": 1, "column": 2, "code": "...", "message": "...", "formatted": "..."}]},
+ *  "testCompile": {...},
+ *  "tests": [{"testClass": "...", "outcome": "FAILURE", "output": "...", "error": "...", "wallNanos": 1, "cpuNanos": 1,
+ *             "report": {"testsRun": 2, "passed": 1, "failures": 1, "errors": 0,
+ *                        "failedTests": [{"testClass": "...", "method": "...", "kind": "FAILURE", "exception": "...", "message": "..."}]}}],
+ *  "timings": {"COMPILE": {"wallNanos": 1, "cpuNanos": 1}}}
+ * </pre>
+ * where {@code compile}, {@code testCompile} and {@code tests} are null when the check did not get that far and a
+ * CPU time of -1 means it is unknown. The {@code report} is derived from the output (see {@link TestReport}) and null
+ * when JUnit did not get as far as reporting. The results of a shard start with a line {@code {"shard": "2/4"}} saying
+ * which shard they are of, see {@link #writeShard}.
+ */
+public class SubmissionResultJsonWriter implements Closeable {
+  private Writer writer;
+
+  public void open(Path outputDir, String fileName) {
+    if (!Files.isDirectory(outputDir)) {
+      throw new IllegalArgumentException("Output dir \'" + outputDir + "\' does not exist or is not a directory");
+    }
+    if (writer != null) {
+      throw new IllegalStateException("Json file is already opened");
+    }
+
+    try {
+      writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(outputDir.resolve(fileName)), StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to save json, reason: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Writes the line saying which shard of the batch the results are of, before any result is appended.
+   */
+  public void writeShard(Shard shard) {
+    if (writer == null) {
+      throw new IllegalStateException("Json file is not opened");
+    }
+
+    try {
+      writer.write(new Json().beginObject().name("shard").value(shard.toString()).endObject().toString());
+      writer.write('\n');
+      writer.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to save json, reason: " + e.getMessage());
+    }
+  }
+
+  public void append(SubmissionCheckResult result) {
+    if (writer == null) {
+      throw new IllegalStateException("Json file is not opened");
+    }
+
+    try {
+      writer.write(toJson(result));
+      writer.write('\n');
+      writer.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to save json, reason: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() {
+    if (writer == null) {
+      return;
+    }
+
+    try {
+      writer.close();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to save json, reason: " + e.getMessage());
+    } finally {
+      writer = null;
+    }
+  }
+
+  static String toJson(SubmissionCheckResult result) {
+    Json json = new Json().beginObject();
+    json.name("path").value(result.getPath().toString());
+    json.name("checkError").value(result.getCheckError());
+
+    json.name("compile");
+    writeCompileResult(json, result.getCompileResult());
+    json.name("testCompile");
+    writeCompileResult(json, result.getTestsCompileResults());
+
+    json.name("tests");
+    List<TestRunner.TestRunResult> testResults = result.getTestResults();
+    if (testResults == null) {
+      json.nullValue();
+    } else {
+      json.beginArray();
+      for (TestRunner.TestRunResult testResult : testResults) {
+        json.beginObject()
+                .name("testClass").value(testResult.getTestClass())
+                .name("outcome").value(testResult.getOutcome().name())
+                .name("output").value(testResult.getOutput())
+                .name("error").value(testResult.getError())
+                .name("wallNanos").value(testResult.getWallNanos())
+                .name("cpuNanos").value(testResult.getCpuNanos())
+                .name("report");
+        writeReport(json, testResult.getReport());
+        json.endObject();
+      }
+      json.endArray();
+    }
+
+    json.name("timings").beginObject();
+    PhaseTimings timings = result.getTimings();
+    for (PhaseTimings.Phase phase : PhaseTimings.Phase.values()) {
+      if (timings.has(phase)) {
+        json.name(phase.name()).beginObject()
+                .name("wallNanos").value(timings.getWallNanos(phase))
+                .name("cpuNanos").value(timings.getCpuNanos(phase))
+                .endObject();
+      }
+    }
+    json.endObject();
+
+    return json.endObject().toString();
+  }
+
+  private static void writeReport(Json json, TestReport report) {
+    if (report == null) {
+      json.nullValue();
+      return;
+    }
+
+    json.beginObject()
+            .name("testsRun").value(report.getTestsRun())
+            .name("passed").value(report.getPassed())
+            .name("failures").value(report.getFailures())
+            .name("errors").value(report.getErrors());
+
+    json.name("failedTests").beginArray();
+    for (TestReport.FailedTest failedTest : report.getFailedTests()) {
+      json.beginObject()
+              .name("testClass").value(failedTest.getTestClass())
+              .name("method").value(failedTest.getMethod())
+              .name("kind").value(failedTest.getKind().name())
+              .name("exception").value(failedTest.getException())
+              .name("message").value(failedTest.getMessage())
+              .endObject();
+    }
+    json.endArray().endObject();
+  }
+
+  private static void writeCompileResult(Json json, Compiler.CompileResult result) {
+    if (result == null) {
+      json.nullValue();
+      return;
+    }
+
+    json.beginObject()
+            .name("outcome").value(result.getOutcome().name())
+            .name("precompiled").value(result.isPrecompiled())
+            .name("output").value(result.getOutput())
+            .name("error").value(result.getError());
+
+    json.name("diagnostics").beginArray();
+    for (Compiler.CompileDiagnostic diagnostic : result.getDiagnostics()) {
+      json.beginObject()
+              .name("kind").value(diagnostic.getKind().name())
+              .name("source").value(diagnostic.getSource())
+              .name("line").value(diagnostic.getLine())
+              .name("column").value(diagnostic.getColumn())
+              .name("code").value(diagnostic.getCode())
+              .name("message").value(diagnostic.getMessage())
+              .name("formatted").value(diagnostic.getFormatted())
+              .endObject();
+    }
+    json.endArray().endObject();
+  }
+}
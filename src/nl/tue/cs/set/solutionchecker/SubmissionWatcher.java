@@ -0,0 +1,161 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Watches the base path and all directories of the submissions in it for changes. A submission is reported as changed
+ * once nothing changed in it for the debounce time, so a student uploading a bunch of files gets checked once, after
+ * the last file arrived. Directories created later on are watched as well.
+ */
+class SubmissionWatcher implements Closeable {
+  private final Path basePath;
+  private final Path excluded;
+  private final long debounceNanos;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> watched = new HashMap<>();
+  private final Map<Path, Long> changedAt = new HashMap<>();
+
+  /**
+   * @param excluded directory of which changes are ignored when it is inside the base path, e.g. the output dir
+   */
+  SubmissionWatcher(Path basePath, Path excluded, long debounceMillis) {
+    this.basePath = basePath;
+    Path absoluteBase = basePath.toAbsolutePath().normalize();
+    Path absoluteExcluded = excluded.toAbsolutePath().normalize();
+    // Only a directory inside the base path can cause events, and excluding the base path itself would ignore everything
+    this.excluded = absoluteExcluded.startsWith(absoluteBase) && !absoluteExcluded.equals(absoluteBase) ? absoluteExcluded : null;
+    this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+
+    try {
+      this.watchService = basePath.getFileSystem().newWatchService();
+      registerAll(basePath);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to watch \'" + basePath + "\', reason: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Waits until at least one submission changed and did not change any more for the debounce time.
+   *
+   * @return the directories of the submissions that changed, including those that were removed
+   */
+  Set<Path> awaitChanges() throws InterruptedException {
+    while (true) {
+      long now = System.nanoTime();
+      Set<Path> settled = new HashSet<>();
+      long nextDue = Long.MAX_VALUE;
+
+      for (Iterator<Map.Entry<Path, Long>> it = changedAt.entrySet().iterator(); it.hasNext(); ) {
+        Map.Entry<Path, Long> change = it.next();
+        long due = change.getValue() + debounceNanos;
+        if (due - now <= 0) {
+          settled.add(change.getKey());
+          it.remove();
+        } else {
+          nextDue = Math.min(nextDue, due);
+        }
+      }
+
+      if (!settled.isEmpty()) {
+        return settled;
+      }
+
+      WatchKey key = changedAt.isEmpty() ? watchService.take() : watchService.poll(nextDue - now, TimeUnit.NANOSECONDS);
+      while (key != null) {
+        process(key);
+        key = watchService.poll();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      System.out.println("Unable to stop watching \'" + basePath + "\', reason: " + e.getMessage());
+    }
+  }
+
+  private void process(WatchKey key) {
+    Path dir = watched.get(key);
+    long now = System.nanoTime();
+
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        // Events were lost, so any submission might have changed
+        markAllChanged(now);
+        continue;
+      }
+
+      Path path = dir.resolve((Path) event.context());
+      if (isExcluded(path)) {
+        continue;
+      }
+
+      if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+        try {
+          registerAll(path);
+        } catch (IOException e) {
+          System.out.println("Unable to watch \'" + path + "\', reason: " + e.getMessage());
+        }
+      }
+
+      changedAt.put(submissionOf(path), now);
+    }
+
+    if (!key.reset()) {
+      // The directory is gone
+      watched.remove(key);
+    }
+  }
+
+  private void markAllChanged(long now) {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(basePath)) {
+      for (Path dir : stream) {
+        if (Files.isDirectory(dir) && !isExcluded(dir)) {
+          changedAt.put(dir, now);
+        }
+      }
+    } catch (IOException e) {
+      System.out.println("Unable to list \'" + basePath + "\', reason: " + e.getMessage());
+    }
+  }
+
+  private void registerAll(Path dir) throws IOException {
+    try (Stream<Path> dirs = Files.walk(dir)) {
+      for (Path subDir : dirs.filter(Files::isDirectory).filter(d -> !isExcluded(d)).collect(Collectors.toList())) {
+        WatchKey key = subDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        watched.put(key, subDir);
+      }
+    }
+  }
+
+  /**
+   * @return the directory of the submission the path is in, directly below the base path
+   */
+  private Path submissionOf(Path path) {
+    return basePath.resolve(basePath.relativize(path).getName(0));
+  }
+
+  private boolean isExcluded(Path path) {
+    return excluded != null && path.toAbsolutePath().normalize().startsWith(excluded);
+  }
+}
@@ -0,0 +1,28 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Main class of a test JVM that runs a single test class: starts the {@link ResourceWatchdog} and hands over to
+ * {@code junit.textui.TestRunner}, which reports and exits as usual. JUnit is invoked through reflection so the checker
+ * itself can be compiled without JUnit on the classpath.
+ */
+public class TestLauncher {
+  private TestLauncher() {
+  }
+
+  public static void main(String[] args) throws Throwable {
+    if (args.length != 2) {
+      System.err.println("Usage: TestLauncher <max threads> <test class>");
+      System.exit(TestWorker.EXIT_EXCEPTION);
+    }
+
+    ResourceWatchdog.start(Integer.parseInt(args[0]));
+
+    try {
+      Class.forName("junit.textui.TestRunner").getMethod("main", String[].class).invoke(null, (Object) new String[] {args[1]});
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What {@code junit.textui.TestRunner} reported about a test run: the number of tests that ran, failed and ended in
+ * an error, and for every failed test its name and message. The report is parsed from the output of the test run,
+ * which works the same for every {@link TestRunner.TestRunMode}; tests that passed are only counted, textui does not
+ * name them.
+ *
+ * Only the lines following the "Time: " line of textui are looked at, so output of the tested code printed while the
+ * tests run is not mistaken for a report. Outputs with several reports, one per test class, are added up.
+ */
+public class TestReport {
+  private static final Pattern TIME = Pattern.compile("^Time: [0-9.,]+$");
+  private static final Pattern DEFECTS = Pattern.compile("^There (?:was|were) \\d+ (error|failure)s?:$");
+  private static final Pattern DEFECT = Pattern.compile("^\\d+\\) (\\w+)\\(([\\w.$]+)\\)(.*)$");
+  private static final Pattern SUCCESS = Pattern.compile("^OK \\((\\d+) tests?\\)$");
+  private static final Pattern FAILURE = Pattern.compile("^Tests run: (\\d+),\\s+Failures: (\\d+),\\s+Errors: (\\d+)$");
+  private static final Pattern EXCEPTION = Pattern.compile("^([\\w.$]+)(?:: (.*))?$", Pattern.DOTALL);
+
+  private final int testsRun;
+  private final int failures;
+  private final int errors;
+  private final List<FailedTest> failedTests;
+
+  private TestReport(int testsRun, int failures, int errors, List<FailedTest> failedTests) {
+    this.testsRun = testsRun;
+    this.failures = failures;
+    this.errors = errors;
+    this.failedTests = Collections.unmodifiableList(failedTests);
+  }
+
+  /**
+   * @return the report in the output, or null if the output has none, e.g. because the test run was stopped
+   */
+  static TestReport parse(String output) {
+    if (output == null || output.isEmpty()) {
+      return null;
+    }
+
+    int testsRun = 0;
+    int failures = 0;
+    int errors = 0;
+    boolean reported = false;
+    List<FailedTest> failedTests = new ArrayList<>();
+
+    boolean inReport = false;
+    FailedTest.Kind kind = null;
+    StringBuilder trace = null;
+    String method = null;
+    String testClass = null;
+
+    for (String line : output.split("\r?\n")) {
+      if (TIME.matcher(line).matches()) {
+        inReport = true;
+        kind = null;
+        continue;
+      } else if (!inReport) {
+        continue;
+      }
+
+      Matcher matcher;
+      if (trace != null && (line.startsWith("\tat ") || line.isEmpty() || DEFECT.matcher(line).matches() || DEFECTS.matcher(line).matches())) {
+        failedTests.add(FailedTest.of(testClass, method, kind, trace.toString()));
+        trace = null;
+      }
+
+      if ((matcher = DEFECTS.matcher(line)).matches()) {
+        kind = "error".equals(matcher.group(1)) ? FailedTest.Kind.ERROR : FailedTest.Kind.FAILURE;
+      } else if (kind != null && (matcher = DEFECT.matcher(line)).matches()) {
+        method = matcher.group(1);
+        testClass = matcher.group(2);
+        trace = new StringBuilder(matcher.group(3));
+      } else if (trace != null) {
+        // A message spanning several lines, the stack trace starts after it
+        trace.append('\n').append(line);
+      } else if ((matcher = SUCCESS.matcher(line)).matches()) {
+        testsRun += Integer.parseInt(matcher.group(1));
+        reported = true;
+        inReport = false;
+      } else if ((matcher = FAILURE.matcher(line)).matches()) {
+        testsRun += Integer.parseInt(matcher.group(1));
+        failures += Integer.parseInt(matcher.group(2));
+        errors += Integer.parseInt(matcher.group(3));
+        reported = true;
+        inReport = false;
+      }
+    }
+
+    return reported ? new TestReport(testsRun, failures, errors, failedTests) : null;
+  }
+
+  public int getTestsRun() {
+    return testsRun;
+  }
+
+  public int getPassed() {
+    return testsRun - failures - errors;
+  }
+
+  public int getFailures() {
+    return failures;
+  }
+
+  public int getErrors() {
+    return errors;
+  }
+
+  /**
+   * @return the tests that failed or ended in an error, in the order textui reported them (errors first)
+   */
+  public List<FailedTest> getFailedTests() {
+    return failedTests;
+  }
+
+  @Override
+  public String toString() {
+    return "TestReport{" +
+            "testsRun=" + testsRun +
+            ", failures=" + failures +
+            ", errors=" + errors +
+            '}';
+  }
+
+  public static class FailedTest {
+    public enum Kind {
+      /** An assertion did not hold */
+      FAILURE,
+      /** The test threw an exception */
+      ERROR
+    }
+
+    private final String testClass;
+    private final String method;
+    private final Kind kind;
+    private final String exception;
+    private final String message;
+
+    private FailedTest(String testClass, String method, Kind kind, String exception, String message) {
+      this.testClass = testClass;
+      this.method = method;
+      this.kind = kind;
+      this.exception = exception;
+      this.message = message;
+    }
+
+    /**
+     * @param trace first line(s) of the stack trace, e.g. "junit.framework.AssertionFailedError: expected:<3> but was:<4>"
+     */
+    private static FailedTest of(String testClass, String method, Kind kind, String trace) {
+      Matcher matcher = EXCEPTION.matcher(trace);
+      if (matcher.matches()) {
+        return new FailedTest(testClass, method, kind, matcher.group(1), matcher.group(2));
+      }
+
+      return new FailedTest(testClass, method, kind, null, trace);
+    }
+
+    public String getTestClass() {
+      return testClass;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    public Kind getKind() {
+      return kind;
+    }
+
+    /**
+     * @return the class name of the exception, or null if it could not be recognized
+     */
+    public String getException() {
+      return exception;
+    }
+
+    /**
+     * @return the message of the exception, or null if it has none
+     */
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String toString() {
+      return method + "(" + testClass + ") " + kind + (message != null ? ": " + message : "");
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How the {@link TestRunner} runs the test classes. Instances are immutable, the {@code with..} methods return a copy
+ * with one setting changed.
+ */
+public class TestRunSettings {
+  public static final int DEFAULT_OUTPUT_CAP = 1024 * 1024;
+
+  private final TestRunner.TestRunMode mode;
+  private final int workers;
+  private final int outputCap;
+  private final TestTimeouts timeouts;
+  private final ResourceLimits resourceLimits;
+  private final boolean quickStart;
+
+  private TestRunSettings(TestRunner.TestRunMode mode, int workers, int outputCap, TestTimeouts timeouts, ResourceLimits resourceLimits,
+                          boolean quickStart) {
+    this.mode = mode;
+    this.workers = workers;
+    this.outputCap = outputCap;
+    this.timeouts = timeouts;
+    this.resourceLimits = resourceLimits;
+    this.quickStart = quickStart;
+  }
+
+  /**
+   * Every test class in a new JVM, keeping at most {@link #DEFAULT_OUTPUT_CAP} bytes of output per stream, with the
+   * default {@link TestTimeouts} and {@link ResourceLimits}, without quick start.
+   */
+  public static TestRunSettings defaults() {
+    return new TestRunSettings(TestRunner.TestRunMode.FORK, 1, DEFAULT_OUTPUT_CAP, TestTimeouts.defaults(), ResourceLimits.defaults(), false);
+  }
+
+  public TestRunSettings withMode(TestRunner.TestRunMode mode) {
+    return new TestRunSettings(mode, workers, outputCap, timeouts, resourceLimits, quickStart);
+  }
+
+  /**
+   * @param workers number of worker JVMs, only used when the mode is {@link TestRunner.TestRunMode#POOL}
+   */
+  public TestRunSettings withWorkers(int workers) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("Number of workers must be at least 1");
+    }
+
+    return new TestRunSettings(mode, workers, outputCap, timeouts, resourceLimits, quickStart);
+  }
+
+  /**
+   * @param outputCap maximum number of bytes kept of the output and of the error output of a test class
+   */
+  public TestRunSettings withOutputCap(int outputCap) {
+    if (outputCap < 0) {
+      throw new IllegalArgumentException("Output cap must not be negative");
+    }
+
+    return new TestRunSettings(mode, workers, outputCap, timeouts, resourceLimits, quickStart);
+  }
+
+  public TestRunSettings withTimeouts(TestTimeouts timeouts) {
+    return new TestRunSettings(mode, workers, outputCap, timeouts, resourceLimits, quickStart);
+  }
+
+  public TestRunSettings withResourceLimits(ResourceLimits resourceLimits) {
+    return new TestRunSettings(mode, workers, outputCap, timeouts, resourceLimits, quickStart);
+  }
+
+  /**
+   * @param quickStart whether test JVMs that only live for one submission only use the C1 JIT compiler, which makes them
+   *                   start faster but makes code that runs long slower
+   */
+  public TestRunSettings withQuickStart(boolean quickStart) {
+    return new TestRunSettings(mode, workers, outputCap, timeouts, resourceLimits, quickStart);
+  }
+
+  public TestRunner.TestRunMode getMode() {
+    return mode;
+  }
+
+  public int getWorkers() {
+    return workers;
+  }
+
+  public int getOutputCap() {
+    return outputCap;
+  }
+
+  public TestTimeouts getTimeouts() {
+    return timeouts;
+  }
+
+  public ResourceLimits getResourceLimits() {
+    return resourceLimits;
+  }
+
+  public boolean isQuickStart() {
+    return quickStart;
+  }
+
+  /**
+   * @param shortLived whether the JVM only runs the tests of a single submission, unlike the workers of
+   *                   {@link TestRunner.TestRunMode#POOL}
+   * @return the options that make a test JVM start faster: it does not write the perf data file monitoring tools use,
+   *         and with quick start a short-lived JVM stops at the C1 compiler
+   */
+  List<String> toStartupJvmOptions(boolean shortLived) {
+    List<String> options = new ArrayList<>();
+    options.add("-XX:-UsePerfData");
+    if (quickStart && shortLived) {
+      options.add("-XX:TieredStopAtLevel=1");
+    }
+    return options;
+  }
+}
@@ -1,80 +1,260 @@
 package nl.tue.cs.set.solutionchecker;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public class TestRunner implements AutoCloseable {
+  static final long CPU_SAMPLE_MILLIS = 20;
 
-public class TestRunner {
   private final Path junitLibPath;
+  private final Path checkerClasspath;
+  private final TestRunSettings settings;
+  private final TestWorkerPool workerPool;
+  private final ExecutorService drainers;
+  private volatile TestTimeouts timeouts;
 
   public TestRunner(Path junitLibPath) {
+    this(junitLibPath, TestRunSettings.defaults());
+  }
+
+  public TestRunner(Path junitLibPath, TestRunSettings settings) {
     if (!Files.exists(junitLibPath)) {
       throw new IllegalArgumentException("JUnit lib not found at " + junitLibPath.toString());
     }
 
     this.junitLibPath = junitLibPath;
+    this.checkerClasspath = findCheckerClasspath();
+    this.settings = settings;
+    this.timeouts = settings.getTimeouts();
+    this.workerPool = settings.getMode() == TestRunMode.POOL
+            ? new TestWorkerPool(junitLibPath, settings.getWorkers(), settings.getOutputCap(), settings.getResourceLimits(),
+            settings.toStartupJvmOptions(false)) : null;
+    this.drainers = Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, "test-output-drainer");
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
   public List<TestRunResult> runTests(Path classesToBeTestedPath, List<String> testClasses) {
-    if (!Files.exists(classesToBeTestedPath)) {
-      throw new IllegalArgumentException("Path of test classes does not exist");
+    return runTests(Collections.singletonList(classesToBeTestedPath), testClasses);
+  }
+
+  /**
+   * @param classpath directories with the classes to be tested and the compiled test classes, in lookup order
+   */
+  public List<TestRunResult> runTests(List<Path> classpath, List<String> testClasses) {
+    for (Path path : classpath) {
+      if (!Files.exists(path)) {
+        throw new IllegalArgumentException("Path of test classes does not exist");
+      }
+    }
+
+    if (settings.getMode() == TestRunMode.BATCH) {
+      return runBatch(classpath, testClasses);
     }
 
     List<TestRunResult> result = new ArrayList<>();
     for (String testClass : testClasses) {
-      result.add(runSingleTest(classesToBeTestedPath, testClass));
+      if (settings.getMode() == TestRunMode.POOL) {
+        result.add(runPooledTest(workerPool, classpath, testClass).withTestClass(testClass));
+      } else {
+        result.add(runSingleTest(classpath, testClass).withTestClass(testClass));
+      }
     }
 
     return result;
   }
 
-  private TestRunResult runSingleTest(Path classesToBeTestedPath, String testClass) {
-    ProcessBuilder pb = new ProcessBuilder("java", "-cp", classesToBeTestedPath.toString() + ":" + junitLibPath.toString(), "junit.textui.TestRunner", testClass);
+  /**
+   * Replaces the time budgets of the test classes, e.g. after calibrating them with a reference solution.
+   */
+  void setTimeouts(TestTimeouts timeouts) {
+    this.timeouts = timeouts;
+  }
+
+  TestTimeouts getTimeouts() {
+    return timeouts;
+  }
 
-    try {
-      Process testResult = pb.start();
-      if (!testResult.waitFor(5, TimeUnit.SECONDS)) {
-        testResult.destroy();
-        return TestRunResult.timeout();
+  private List<TestRunResult> runBatch(List<Path> classpath, List<String> testClasses) {
+    List<TestRunResult> result = new ArrayList<>();
+
+    // A single worker that only lives for this submission, it is only replaced when a test class times out or kills it
+    try (TestWorkerPool batchWorker = new TestWorkerPool(junitLibPath, 1, settings.getOutputCap(), settings.getResourceLimits(),
+            settings.toStartupJvmOptions(true))) {
+      for (String testClass : testClasses) {
+        result.add(runPooledTest(batchWorker, classpath, testClass).withTestClass(testClass));
       }
+    }
 
-      if (testResult.exitValue() == 0) {
-        return TestRunResult.successful(readInputStream(testResult.getInputStream()));
-      } else {
-        return TestRunResult.unsuccessful(readInputStream(testResult.getInputStream()), readInputStream(testResult.getErrorStream()));
+    return result;
+  }
+
+  private TestRunResult runPooledTest(TestWorkerPool pool, List<Path> classpath, String testClass) {
+    try {
+      return pool.run(classpath, testClass, timeouts);
+    } catch (IllegalStateException e) {
+      System.out.println("Running \'" + testClass + "\' of \'" + toClasspath(classpath) + "\' in a separate JVM, reason: " + e.getMessage());
+      return runSingleTest(classpath, testClass);
+    }
+  }
+
+  private TestRunResult runSingleTest(List<Path> classpath, String testClass) {
+    ResourceLimits limits = settings.getResourceLimits();
+
+    List<String> command = new ArrayList<>();
+    command.add("java");
+    command.addAll(limits.toJvmOptions());
+    command.addAll(settings.toStartupJvmOptions(true));
+    // The output is decoded as UTF-8, so make the test JVM write it as such whatever the platform default is
+    command.addAll(List.of("-Dstdout.encoding=UTF-8", "-Dstderr.encoding=UTF-8", "-Dsun.stdout.encoding=UTF-8", "-Dsun.stderr.encoding=UTF-8"));
+    command.addAll(List.of("-cp", toClasspath(classpath) + File.pathSeparator + junitLibPath.toString() + File.pathSeparator + checkerClasspath.toString()));
+    command.addAll(List.of(TestLauncher.class.getName(), Integer.toString(limits.getThreads()), testClass));
+    ProcessBuilder pb = new ProcessBuilder(command);
+
+    Process testResult = null;
+    try {
+      long start = System.nanoTime();
+      testResult = pb.start();
+
+      // Both streams are read while the process runs, a process that fills up a pipe would block otherwise
+      Future<String> output = drain(testResult.getInputStream());
+      Future<String> error = drain(testResult.getErrorStream());
+
+      // The CPU time can only be read while the process is alive, so it is sampled while waiting
+      TestTimeouts budget = timeouts;
+      long cpuNanos = -1;
+      while (!testResult.waitFor(CPU_SAMPLE_MILLIS, TimeUnit.MILLISECONDS)) {
+        cpuNanos = Math.max(cpuNanos, cpuNanos(testResult.toHandle()));
+
+        long wallNanos = System.nanoTime() - start;
+        if (budget.isExceeded(testClass, wallNanos, cpuNanos)) {
+          destroyProcessTree(testResult.toHandle());
+          return TestRunResult.timeout().withTimings(wallNanos, cpuNanos);
+        }
       }
+      long wallNanos = System.nanoTime() - start;
 
-    } catch (InterruptedException | IOException e) {
+      return TestRunResult.of(testResult.exitValue(), output.get(), error.get()).withTimings(wallNanos, cpuNanos);
+
+    } catch (InterruptedException e) {
+      // E.g. when the checker is closed while the test runs, the test JVM must not be left running
+      if (testResult != null) {
+        destroyProcessTree(testResult.toHandle());
+      }
+      Thread.currentThread().interrupt();
       throw new IllegalStateException("Unable to run tests, reason: " + e.getMessage(), e);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to run tests, reason: " + e.getMessage(), e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to read test output, reason: " + e.getCause().getMessage(), e.getCause());
     }
   }
 
-  private String readInputStream(InputStream stream) {
-    String output = "";
-    Scanner scn = new Scanner(stream);
-    while (scn.hasNext()) {
-      output += scn.nextLine() + "\n";
+  static String toClasspath(List<Path> paths) {
+    return paths.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator));
+  }
+
+  /**
+   * @return the directory or jar the checker classes are loaded from, test JVMs need it to start a {@link TestLauncher}
+   *         or a {@link TestWorker}
+   */
+  static Path findCheckerClasspath() {
+    try {
+      return Paths.get(TestWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    } catch (URISyntaxException | SecurityException | NullPointerException e) {
+      throw new IllegalStateException("Unable to determine the classpath of the checker", e);
     }
-    scn.close();
+  }
+
+  /**
+   * @return the CPU time used by the process so far, or -1 if that is unknown
+   */
+  static long cpuNanos(ProcessHandle process) {
+    return process.info().totalCpuDuration().map(Duration::toNanos).orElse(-1L);
+  }
+
+  /**
+   * Kills the process and every process it started, a test that started processes of its own would otherwise leave
+   * them running.
+   */
+  static void destroyProcessTree(ProcessHandle process) {
+    // The descendants are collected first, once the process is gone they are no longer known as its descendants
+    List<ProcessHandle> descendants = new ArrayList<>();
+    process.descendants().forEach(descendants::add);
+
+    process.destroyForcibly();
+    descendants.forEach(ProcessHandle::destroyForcibly);
+  }
 
-    return output;
+  private Future<String> drain(InputStream stream) {
+    return drainers.submit(() -> readInputStream(stream));
+  }
+
+  /**
+   * Reads the stream until its end, keeping at most the configured output cap. The bytes are decoded once, at the
+   * end, so the output is kept exactly as the process wrote it (including empty lines and line separators).
+   */
+  private String readInputStream(InputStream stream) throws IOException {
+    CappedOutputStream output = new CappedOutputStream(settings.getOutputCap());
+
+    try (InputStream in = stream) {
+      in.transferTo(output);
+    }
+
+    return output.toString(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() {
+    if (workerPool != null) {
+      workerPool.close();
+    }
+    drainers.shutdownNow();
   }
 
   static class TestRunResult {
+    private static final Pattern REPORTED_TIME = Pattern.compile("^Time: ([0-9.,]+)$", Pattern.MULTILINE);
+
     private final TestRunOutcome outcome;
     private final String output;
     private final String error;
+    private final String testClass;
+    private final long wallNanos;
+    private final long cpuNanos;
 
     private TestRunResult(TestRunOutcome outcome, String output, String error) {
+      this(outcome, output, error, null, 0, -1);
+    }
+
+    private TestRunResult(TestRunOutcome outcome, String output, String error, String testClass, long wallNanos, long cpuNanos) {
       this.outcome = outcome;
       this.output = output;
       this.error = error;
+      this.testClass = testClass;
+      this.wallNanos = wallNanos;
+      this.cpuNanos = cpuNanos;
     }
 
     public static TestRunResult successful(String output) {
@@ -93,10 +273,96 @@ public class TestRunner {
       return new TestRunResult(TestRunOutcome.TIMEOUT, "", "");
     }
 
+    public static TestRunResult memoryExceeded(String output, String error) {
+      return new TestRunResult(TestRunOutcome.MEMORY_EXCEEDED, output, error);
+    }
+
+    public static TestRunResult threadsExceeded(String output, String error) {
+      return new TestRunResult(TestRunOutcome.THREADS_EXCEEDED, output, error);
+    }
+
+    /**
+     * @return the result of a test JVM that exited with the exit code, see {@link TestWorker} and {@link ResourceLimits}
+     */
+    static TestRunResult of(int exitCode, String output, String error) {
+      if (exitCode == TestWorker.EXIT_SUCCESS) {
+        return successful(output);
+      } else if (ResourceLimits.isMemoryExceeded(exitCode, output, error)) {
+        return memoryExceeded(output, error);
+      } else if (ResourceLimits.isThreadsExceeded(exitCode, error)) {
+        return threadsExceeded(output, error);
+      } else {
+        return unsuccessful(output, error);
+      }
+    }
+
+    /**
+     * Recreates a result that was stored earlier, e.g. by the {@link ResultCache}.
+     */
+    static TestRunResult restore(TestRunOutcome outcome, String output, String error) {
+      return new TestRunResult(outcome, output, error);
+    }
+
+    /**
+     * @return a copy of this result with the wall clock time and the CPU time (-1 if unknown) of the test JVM
+     */
+    TestRunResult withTimings(long wallNanos, long cpuNanos) {
+      return new TestRunResult(outcome, output, error, testClass, wallNanos, cpuNanos);
+    }
+
+    /**
+     * @return a copy of this result for the named test class
+     */
+    TestRunResult withTestClass(String testClass) {
+      return new TestRunResult(outcome, output, error, testClass, wallNanos, cpuNanos);
+    }
+
+    /**
+     * @return the name of the test class that ran, or null if unknown
+     */
+    public String getTestClass() {
+      return testClass;
+    }
+
     public boolean isSuccessful() {
       return outcome == TestRunOutcome.SUCCESS;
     }
 
+    public long getWallNanos() {
+      return wallNanos;
+    }
+
+    public long getCpuNanos() {
+      return cpuNanos;
+    }
+
+    /**
+     * @return the time JUnit reported for running the tests ("Time: 0.123"), or -1 if it did not report one
+     */
+    public long getReportedTimeNanos() {
+      Matcher matcher = REPORTED_TIME.matcher(output);
+      long total = -1;
+
+      while (matcher.find()) {
+        try {
+          double seconds = NumberFormat.getInstance().parse(matcher.group(1)).doubleValue();
+          total = Math.max(total, 0) + (long) (seconds * 1e9);
+        } catch (ParseException e) {
+          // Not a time after all, e.g. printed by the tested code
+        }
+      }
+
+      return total;
+    }
+
+    /**
+     * @return the tests that ran, failed and ended in an error as reported by JUnit, or null if the test run did not
+     *         get as far as reporting, e.g. because it was stopped
+     */
+    public TestReport getReport() {
+      return TestReport.parse(output);
+    }
+
     public TestRunOutcome getOutcome() {
       return outcome;
     }
@@ -120,6 +386,22 @@ public class TestRunner {
   }
 
   enum TestRunOutcome {
-    SUCCESS,FAILURE,ERROR,TIMEOUT;
+    SUCCESS,FAILURE,ERROR,TIMEOUT,MEMORY_EXCEEDED,THREADS_EXCEEDED;
+
+    /**
+     * @return whether the test run was stopped because it used too much of a resource
+     */
+    boolean isLimitExceeded() {
+      return this == TIMEOUT || this == MEMORY_EXCEEDED || this == THREADS_EXCEEDED;
+    }
+  }
+
+  public enum TestRunMode {
+    /** Every test class runs in a newly started JVM */
+    FORK,
+    /** All test classes of a submission run one after the other in one newly started JVM, each with its own timeout */
+    BATCH,
+    /** Test classes run in a pool of long-lived worker JVMs, falling back to {@link #FORK} when a worker fails */
+    POOL;
   }
 }
@@ -0,0 +1,107 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Time budgets of the test classes. A test class gets a budget of CPU time, so a busy machine does not make a correct
+ * submission time out, and a wall clock limit of a multiple of that budget, for tests that wait without using CPU
+ * (e.g. a deadlock). The wall clock limit can be set to a fixed time instead. When the CPU time of a test run cannot be
+ * read, the budget is used as wall clock limit instead.
+ *
+ * Instances are immutable, the {@code with..} methods return a copy with one setting changed.
+ */
+public class TestTimeouts {
+  public static final long DEFAULT_CPU_MILLIS = 5000;
+  /** Wall clock limit as a multiple of the CPU budget, unless set, large so a test sharing a busy machine still fits */
+  static final int WALL_FACTOR = 3;
+  /** Budget of a calibrated test class as a multiple of the CPU time the reference solution used */
+  static final int CALIBRATION_FACTOR = 3;
+  static final long CALIBRATION_MARGIN_MILLIS = 1000;
+
+  private final long defaultCpuMillis;
+  /** Fixed wall clock limit, or 0 for {@link #WALL_FACTOR} times the CPU time budget */
+  private final long wallMillis;
+  private final Map<String, Long> cpuMillisPerTestClass;
+
+  private TestTimeouts(long defaultCpuMillis, long wallMillis, Map<String, Long> cpuMillisPerTestClass) {
+    this.defaultCpuMillis = defaultCpuMillis;
+    this.wallMillis = wallMillis;
+    this.cpuMillisPerTestClass = Collections.unmodifiableMap(cpuMillisPerTestClass);
+  }
+
+  /**
+   * {@link #DEFAULT_CPU_MILLIS} of CPU time and {@link #WALL_FACTOR} times as much wall clock time for every test class.
+   */
+  public static TestTimeouts defaults() {
+    return new TestTimeouts(DEFAULT_CPU_MILLIS, 0, new HashMap<>());
+  }
+
+  /**
+   * @param cpuMillis budget of CPU time of the test classes that have no budget of their own
+   */
+  public TestTimeouts withDefaultCpuMillis(long cpuMillis) {
+    if (cpuMillis < 1) {
+      throw new IllegalArgumentException("CPU time budget must be at least 1 ms");
+    }
+
+    return new TestTimeouts(cpuMillis, wallMillis, new HashMap<>(cpuMillisPerTestClass));
+  }
+
+  /**
+   * @param wallMillis wall clock limit of all test classes, instead of a multiple of their CPU time budget
+   */
+  public TestTimeouts withWallMillis(long wallMillis) {
+    if (wallMillis < 1) {
+      throw new IllegalArgumentException("Wall clock limit must be at least 1 ms");
+    }
+
+    return new TestTimeouts(defaultCpuMillis, wallMillis, new HashMap<>(cpuMillisPerTestClass));
+  }
+
+  public TestTimeouts withCpuMillis(String testClass, long cpuMillis) {
+    if (cpuMillis < 1) {
+      throw new IllegalArgumentException("CPU time budget must be at least 1 ms");
+    }
+
+    Map<String, Long> budgets = new HashMap<>(cpuMillisPerTestClass);
+    budgets.put(testClass, cpuMillis);
+    return new TestTimeouts(defaultCpuMillis, wallMillis, budgets);
+  }
+
+  /**
+   * @return a copy with the budget of the test class based on the CPU time the reference solution needed for it
+   */
+  public TestTimeouts withCalibratedCpuMillis(String testClass, long referenceCpuMillis) {
+    return withCpuMillis(testClass, referenceCpuMillis * CALIBRATION_FACTOR + CALIBRATION_MARGIN_MILLIS);
+  }
+
+  public long getCpuMillis(String testClass) {
+    return cpuMillisPerTestClass.getOrDefault(testClass, defaultCpuMillis);
+  }
+
+  public long getWallMillis(String testClass) {
+    return wallMillis > 0 ? wallMillis : getCpuMillis(testClass) * WALL_FACTOR;
+  }
+
+  /**
+   * @param cpuNanos CPU time used by the test run so far, -1 if unknown
+   * @return whether a test run of the test class that took this long has to be stopped
+   */
+  boolean isExceeded(String testClass, long wallNanos, long cpuNanos) {
+    long cpuLimitNanos = getCpuMillis(testClass) * 1_000_000;
+
+    if (cpuNanos < 0) {
+      return wallNanos > cpuLimitNanos;
+    }
+    return cpuNanos > cpuLimitNanos || wallNanos > getWallMillis(testClass) * 1_000_000;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder description = new StringBuilder(defaultCpuMillis + " ms CPU time");
+    cpuMillisPerTestClass.forEach((testClass, cpuMillis) -> description.append(", ").append(testClass).append(": ").append(cpuMillis).append(" ms"));
+    return description.append(wallMillis > 0 ? " (wall clock limit " + wallMillis + " ms)" : " (wall clock limit " + WALL_FACTOR + "x)").toString();
+  }
+}
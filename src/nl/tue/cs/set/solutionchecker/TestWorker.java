@@ -0,0 +1,192 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Main class of a long-lived test worker JVM (see {@link TestWorkerPool}).
+ *
+ * The worker reads run requests from stdin and answers each with the outcome on stdout, using the binary protocol
+ * below. Every run loads the classes of the submission in a fresh class loader, on top of a class loader with the
+ * JUnit lib that is shared between runs. JUnit is invoked through reflection so the checker itself can be compiled
+ * without JUnit on the classpath.
+ *
+ * <pre>
+ *   request:  int REQUEST_RUN, string classpath (separated by the path separator), string test class
+ *   response: int RESPONSE_MAGIC, int exit code, string output, string error output, boolean recycle
+ * </pre>
+ * where strings are written as an int length followed by the UTF-8 bytes. The exit code mimics the one of
+ * {@code junit.textui.TestRunner}. The worker exits when stdin is closed.
+ */
+public class TestWorker {
+  static final int REQUEST_RUN = 1;
+  static final int RESPONSE_MAGIC = 0x4A54524E;
+
+  static final int EXIT_SUCCESS = 0;
+  static final int EXIT_FAILURE = 1;
+  static final int EXIT_EXCEPTION = 2;
+
+  private final ClassLoader junitLoader;
+  private final int outputCap;
+  private final PrintStream originalOut;
+  private final PrintStream originalErr;
+
+  private TestWorker(ClassLoader junitLoader, int outputCap) {
+    this.junitLoader = junitLoader;
+    this.outputCap = outputCap;
+    this.originalOut = System.out;
+    this.originalErr = System.err;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 3) {
+      System.err.println("Usage: TestWorker <path to junit 3.8.x lib> <output cap in bytes> <max threads>");
+      System.exit(EXIT_EXCEPTION);
+    }
+
+    // A run exceeding the limit stops the worker, the pool then runs the test class again in a new JVM
+    ResourceWatchdog.start(Integer.parseInt(args[2]));
+
+    URLClassLoader junitLoader = new URLClassLoader(new URL[] {Paths.get(args[0]).toUri().toURL()}, ClassLoader.getPlatformClassLoader());
+
+    DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+    new TestWorker(junitLoader, Integer.parseInt(args[1])).serve(in, out);
+  }
+
+  private void serve(DataInputStream in, DataOutputStream out) throws IOException {
+    while (true) {
+      int request;
+      try {
+        request = in.readInt();
+      } catch (EOFException e) {
+        return;
+      }
+
+      if (request != REQUEST_RUN) {
+        throw new IllegalStateException("Unknown request " + request);
+      }
+
+      String classpath = readString(in);
+      String testClass = readString(in);
+
+      Set<Thread> threadsBefore = Thread.getAllStackTraces().keySet();
+      Properties propertiesBefore = (Properties) System.getProperties().clone();
+
+      CappedOutputStream output = new CappedOutputStream(outputCap);
+      CappedOutputStream error = new CappedOutputStream(outputCap);
+      int exitCode = run(classpath, testClass, output, error);
+
+      // A test that leaves threads running or changes the system properties might influence the next runs, daemon
+      // threads too: they keep running and write to System.out while the next submission is tested
+      boolean recycle = hasNewLiveThreads(threadsBefore) || !propertiesBefore.equals(System.getProperties());
+
+      out.writeInt(RESPONSE_MAGIC);
+      out.writeInt(exitCode);
+      writeString(out, output.toString(StandardCharsets.UTF_8));
+      writeString(out, error.toString(StandardCharsets.UTF_8));
+      out.writeBoolean(recycle);
+      out.flush();
+    }
+  }
+
+  private int run(String classpath, String testClass, CappedOutputStream output, CappedOutputStream error) {
+    PrintStream capturedOut = new PrintStream(output, true, StandardCharsets.UTF_8);
+    PrintStream capturedErr = new PrintStream(error, true, StandardCharsets.UTF_8);
+    ClassLoader originalContextLoader = Thread.currentThread().getContextClassLoader();
+
+    System.setOut(capturedOut);
+    System.setErr(capturedErr);
+
+    try (URLClassLoader submissionLoader = new URLClassLoader(toUrls(classpath), junitLoader)) {
+      Thread.currentThread().setContextClassLoader(submissionLoader);
+      return runSuite(submissionLoader, testClass, capturedOut);
+    } catch (Throwable e) {
+      // Same as junit.textui.TestRunner when it is unable to start the suite
+      capturedErr.println(e instanceof InvocationTargetException ? e.getCause() : e);
+      return EXIT_EXCEPTION;
+    } finally {
+      Thread.currentThread().setContextClassLoader(originalContextLoader);
+      System.setOut(originalOut);
+      System.setErr(originalErr);
+      capturedOut.flush();
+      capturedErr.flush();
+    }
+  }
+
+  private static URL[] toUrls(String classpath) throws MalformedURLException {
+    String[] paths = classpath.split(File.pathSeparator);
+    URL[] urls = new URL[paths.length];
+    for (int i = 0; i < paths.length; i++) {
+      urls[i] = Paths.get(paths[i]).toUri().toURL();
+    }
+    return urls;
+  }
+
+  private int runSuite(ClassLoader loader, String testClassName, PrintStream out) throws ReflectiveOperationException {
+    Class<?> testInterface = loader.loadClass("junit.framework.Test");
+    Class<?> runnerClass = loader.loadClass("junit.textui.TestRunner");
+    Class<?> testClass = loader.loadClass(testClassName);
+
+    Object suite;
+    Method suiteMethod = findSuiteMethod(testClass);
+    if (suiteMethod != null) {
+      suite = suiteMethod.invoke(null);
+    } else {
+      suite = loader.loadClass("junit.framework.TestSuite").getConstructor(Class.class).newInstance(testClass);
+    }
+
+    Object runner = runnerClass.getConstructor(PrintStream.class).newInstance(out);
+    Object result = runnerClass.getMethod("doRun", testInterface, boolean.class).invoke(runner, suite, false);
+    boolean successful = (Boolean) result.getClass().getMethod("wasSuccessful").invoke(result);
+
+    return successful ? EXIT_SUCCESS : EXIT_FAILURE;
+  }
+
+  private static Method findSuiteMethod(Class<?> testClass) {
+    try {
+      Method suiteMethod = testClass.getMethod("suite");
+      return Modifier.isStatic(suiteMethod.getModifiers()) ? suiteMethod : null;
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private static boolean hasNewLiveThreads(Set<Thread> threadsBefore) {
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (!threadsBefore.contains(thread) && thread.isAlive()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
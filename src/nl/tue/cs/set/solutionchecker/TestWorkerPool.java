@@ -0,0 +1,223 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Pool of long-lived {@link TestWorker} JVMs, so the JVM startup is paid once per worker instead of once per test run.
+ *
+ * A worker is recycled (stopped and replaced by a fresh one when needed) after a timeout, after it reported that a run
+ * might have corrupted its state, when it died or broke the protocol, and after a fixed number of runs.
+ */
+class TestWorkerPool implements AutoCloseable {
+  private static final int MAX_RUNS_PER_WORKER = 200;
+
+  private final Path junitLibPath;
+  private final int outputCap;
+  private final ResourceLimits resourceLimits;
+  private final List<String> startupOptions;
+  private final Path checkerClasspath;
+  private final Semaphore available;
+  private final BlockingQueue<Worker> idle;
+  private final List<Worker> all;
+  private final ExecutorService readers;
+
+  /**
+   * @param outputCap maximum number of bytes a worker keeps of the output and of the error output of a test run
+   * @param resourceLimits limits of every worker JVM, a worker exceeding one dies and the run falls back to a new JVM
+   * @param startupOptions options for a faster start of the worker JVMs, see {@link TestRunSettings#toStartupJvmOptions}
+   */
+  TestWorkerPool(Path junitLibPath, int size, int outputCap, ResourceLimits resourceLimits, List<String> startupOptions) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Pool must have at least one worker");
+    }
+
+    this.junitLibPath = junitLibPath;
+    this.outputCap = outputCap;
+    this.resourceLimits = resourceLimits;
+    this.startupOptions = startupOptions;
+    this.checkerClasspath = TestRunner.findCheckerClasspath();
+    this.available = new Semaphore(size);
+    this.idle = new LinkedBlockingQueue<>();
+    this.all = new ArrayList<>();
+    this.readers = Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, "test-worker-reader");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Runs the test class against the classes in {@code classpath} on one of the workers.
+   *
+   * @throws IllegalStateException when the worker could not be started or failed while running, the outcome of the
+   *                               test run is unknown then
+   */
+  TestRunner.TestRunResult run(List<Path> classpath, String testClass, TestTimeouts timeouts) {
+    try {
+      available.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a test worker", e);
+    }
+
+    Worker worker = null;
+    boolean reusable = false;
+    try {
+      worker = idle.poll();
+      if (worker == null) {
+        worker = startWorker();
+      }
+
+      long start = System.nanoTime();
+      long startCpu = TestRunner.cpuNanos(worker.process.toHandle());
+
+      Future<Response> pending = worker.send(classpath, testClass);
+      Response response = null;
+      while (response == null) {
+        try {
+          response = pending.get(TestRunner.CPU_SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          // Only the CPU time the worker used since the run started counts
+          long wallNanos = System.nanoTime() - start;
+          long cpuNanos = cpuSince(worker, startCpu);
+
+          if (timeouts.isExceeded(testClass, wallNanos, cpuNanos)) {
+            pending.cancel(true);
+            return TestRunner.TestRunResult.timeout().withTimings(wallNanos, cpuNanos);
+          }
+        } catch (ExecutionException e) {
+          throw new IllegalStateException("Test worker failed, reason: " + e.getCause(), e.getCause());
+        }
+      }
+
+      reusable = !response.recycle && worker.runs < MAX_RUNS_PER_WORKER;
+
+      long wallNanos = System.nanoTime() - start;
+      long cpuNanos = cpuSince(worker, startCpu);
+
+      return TestRunner.TestRunResult.of(response.exitCode, response.output, response.error).withTimings(wallNanos, cpuNanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a test worker", e);
+    } finally {
+      if (worker != null) {
+        if (reusable) {
+          idle.offer(worker);
+        } else {
+          worker.stop();
+        }
+      }
+      available.release();
+    }
+  }
+
+  private static long cpuSince(Worker worker, long startCpu) {
+    long cpu = TestRunner.cpuNanos(worker.process.toHandle());
+    return startCpu < 0 || cpu < 0 ? -1 : cpu - startCpu;
+  }
+
+  private Worker startWorker() {
+    List<String> command = new ArrayList<>();
+    command.add("java");
+    command.addAll(resourceLimits.toJvmOptions());
+    command.addAll(startupOptions);
+    command.addAll(List.of("-cp", checkerClasspath.toString(), TestWorker.class.getName(),
+            junitLibPath.toString(), Integer.toString(outputCap), Integer.toString(resourceLimits.getThreads())));
+    ProcessBuilder pb = new ProcessBuilder(command);
+    pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+
+    try {
+      Worker worker = new Worker(pb.start());
+      synchronized (all) {
+        all.add(worker);
+      }
+      return worker;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to start test worker, reason: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void close() {
+    List<Worker> workers;
+    synchronized (all) {
+      workers = new ArrayList<>(all);
+    }
+    workers.forEach(Worker::stop);
+    idle.clear();
+    readers.shutdownNow();
+  }
+
+  private class Worker {
+    private final Process process;
+    private final DataOutputStream requests;
+    private final DataInputStream responses;
+    private int runs;
+
+    Worker(Process process) {
+      this.process = process;
+      this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+      this.responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    Future<Response> send(List<Path> classpath, String testClass) {
+      runs++;
+
+      return readers.submit(() -> {
+        requests.writeInt(TestWorker.REQUEST_RUN);
+        TestWorker.writeString(requests, TestRunner.toClasspath(classpath.stream().map(Path::toAbsolutePath).collect(Collectors.toList())));
+        TestWorker.writeString(requests, testClass);
+        requests.flush();
+
+        if (responses.readInt() != TestWorker.RESPONSE_MAGIC) {
+          throw new IOException("Unexpected response from test worker");
+        }
+
+        int exitCode = responses.readInt();
+        String output = TestWorker.readString(responses);
+        String error = TestWorker.readString(responses);
+        boolean recycle = responses.readBoolean();
+
+        return new Response(exitCode, output, error, recycle);
+      });
+    }
+
+    void stop() {
+      TestRunner.destroyProcessTree(process.toHandle());
+      synchronized (all) {
+        all.remove(this);
+      }
+    }
+  }
+
+  private static class Response {
+    private final int exitCode;
+    private final String output;
+    private final String error;
+    private final boolean recycle;
+
+    Response(int exitCode, String output, String error, boolean recycle) {
+      this.exitCode = exitCode;
+      this.output = output;
+      this.error = error;
+      this.recycle = recycle;
+    }
+  }
+}
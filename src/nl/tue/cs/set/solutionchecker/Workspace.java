@@ -0,0 +1,99 @@
+package nl.tue.cs.set.solutionchecker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Scratch directory holding the class files of one submission while its tests run, so nothing is written to the
+ * directory of the submission itself. The sources are compiled where they are and the tests straight from their own
+ * location, only the compiled classes have to be on disk for the test JVM. By default the workspace is created on
+ * tmpfs ({@code /dev/shm}) when available, and it is deleted again when closed.
+ *
+ * A submission read from a zip file (see {@link SubmissionArchive}) is not on disk for the test JVM to load its
+ * resources from, so for such a submission all its files but the sources are copied into the workspace instead.
+ */
+class Workspace implements Closeable {
+  private static final Path SHARED_MEMORY = Paths.get("/dev/shm");
+
+  private final Path dir;
+  private final Path classesDir;
+  private final Path resourcesDir;
+
+  private Workspace(Path dir, Path classesDir, Path resourcesDir) {
+    this.dir = dir;
+    this.classesDir = classesDir;
+    this.resourcesDir = resourcesDir;
+  }
+
+  /**
+   * @param root directory to create the workspace in, or null for tmpfs if available and the temporary directory
+   *             otherwise
+   */
+  static Workspace create(Path root, Path submissionDir) {
+    Path workspaceRoot = root != null ? root : defaultRoot();
+
+    try {
+      Files.createDirectories(workspaceRoot);
+      Path dir = Files.createTempDirectory(workspaceRoot, "checker-" + submissionDir.getFileName() + "-");
+      if (submissionDir.getFileSystem() == FileSystems.getDefault()) {
+        return new Workspace(dir, dir, submissionDir);
+      }
+
+      Path resourcesDir = Files.createDirectory(dir.resolve("resources"));
+      copyResources(submissionDir, resourcesDir);
+      return new Workspace(dir, Files.createDirectory(dir.resolve("classes")), resourcesDir);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to create workspace for \'" + submissionDir + "\' in \'" + workspaceRoot + "\', reason: " + e.getMessage(), e);
+    }
+  }
+
+  static Path defaultRoot() {
+    if (Files.isDirectory(SHARED_MEMORY) && Files.isWritable(SHARED_MEMORY)) {
+      return SHARED_MEMORY;
+    }
+
+    return Paths.get(System.getProperty("java.io.tmpdir"));
+  }
+
+  private static void copyResources(Path submissionDir, Path resourcesDir) throws IOException {
+    try (Stream<Path> files = Files.walk(submissionDir)) {
+      for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).filter(f -> !f.toString().endsWith(".java"))::iterator) {
+        // Resolved by name, the paths of the submission are of another file system
+        Path target = resourcesDir.resolve(submissionDir.relativize(file).toString());
+        Files.createDirectories(target.getParent());
+        Files.copy(file, target);
+      }
+    }
+  }
+
+  Path getClassesDir() {
+    return classesDir;
+  }
+
+  /**
+   * @return the classpath to run the tests with: the compiled classes, followed by the submission directory (or the copy
+   *         of its files) for any resources the submission loads from the classpath
+   */
+  List<Path> getClasspath() {
+    return Arrays.asList(classesDir, resourcesDir);
+  }
+
+  @Override
+  public void close() {
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException e) {
+      System.out.println("Unable to remove workspace \'" + dir + "\', reason: " + e.getMessage());
+    }
+  }
+}